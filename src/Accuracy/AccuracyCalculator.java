@@ -17,12 +17,8 @@
 
 package Accuracy;
 
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypePosition;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import Utils.SingleGenotype.GenotypeBatch;
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 /**
@@ -43,48 +39,49 @@ public class AccuracyCalculator
      * @param compareTo The genotypes to test
      * @return Percentage accuracy
      */
-    public static double accuracy(List<SingleGenotypeCall> correct, List<SingleGenotypeCall> compareTo)
+    public static double accuracy(GenotypeBatch correct, GenotypeBatch compareTo)
     {
-        if (!SingleGenotypePosition.samePositions(correct, compareTo))
+        if (!correct.samePositions(compareTo))
         {
             //SHOULD DO SOMETHING PROPER HERE
             throw new RuntimeException();
         }
         
         return IntStream.range(0, correct.size()).mapToDouble(i -> 
-            (correct.get(i).getCall() == compareTo.get(i).getCall()) ? 1.0 : 0.0).average().orElse(0.0);
+            (correct.getCall(i) == compareTo.getCall(i)) ? 1.0 : 0.0).average().orElse(0.0);
     }
     
     /**
      * Calculates the correlation between correct and imputed genotypes
      * @param correct The correct genotypes
-     * @param compareTo The genotypes to test
-     * @param masked List of masked genotypes (contains the MAF of each genotype)
+     * @param compareTo The genotypes to test (which must also hold the MAF of
+     * each genotype)
      * @return Percentage accuracy
      */
-    public static double correlation(List<SingleGenotypeCall> correct, List<SingleGenotypeCall> compareTo,
-                                     List<SingleGenotypeMasked> masked)
+    public static double correlation(GenotypeBatch correct, GenotypeBatch compareTo)
     {
-        if (!SingleGenotypePosition.samePositions(correct, compareTo))
+        if (!correct.samePositions(compareTo))
         {
             //SHOULD DO SOMETHING PROPER HERE
             throw new RuntimeException();
         }
         
-        List<Double> scaledOriginal = IntStream.range(0, correct.size())
-                .mapToObj(i -> correct.get(i).getCall() - masked.get(i).getMaf())
-                .collect(Collectors.toCollection(ArrayList::new));
-        List<Double> scaledImputed = IntStream.range(0, compareTo.size())
-                .mapToObj(i -> compareTo.get(i).getCall() - masked.get(i).getMaf())
-                .collect(Collectors.toCollection(ArrayList::new));
+        int n = correct.size();
+        double[] scaledOriginal = new double[n];
+        double[] scaledImputed = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            scaledOriginal[i] = correct.getCall(i) - compareTo.getMaf(i);
+            scaledImputed[i] = compareTo.getCall(i) - compareTo.getMaf(i);
+        }
         
-        double meanx = scaledOriginal.stream().mapToDouble(d -> d).summaryStatistics().getAverage();
-        double meany = scaledImputed.stream().mapToDouble(d -> d).summaryStatistics().getAverage();
+        double meanx = Arrays.stream(scaledOriginal).summaryStatistics().getAverage();
+        double meany = Arrays.stream(scaledImputed).summaryStatistics().getAverage();
 
-        double xx = scaledOriginal.stream().mapToDouble(d -> (d - meanx) * (d - meanx)).sum();
-        double yy = scaledImputed.stream().mapToDouble(d -> (d - meany) * (d - meany)).sum();
-        double xy = IntStream.range(0, scaledOriginal.size())
-                .mapToDouble(i -> (scaledOriginal.get(i) - meanx) * (scaledImputed.get(i) - meany))
+        double xx = Arrays.stream(scaledOriginal).map(d -> (d - meanx) * (d - meanx)).sum();
+        double yy = Arrays.stream(scaledImputed).map(d -> (d - meany) * (d - meany)).sum();
+        double xy = IntStream.range(0, n)
+                .mapToDouble(i -> (scaledOriginal[i] - meanx) * (scaledImputed[i] - meany))
                 .sum();            
        
         return (xy * xy) / (xx * yy);
@@ -93,15 +90,13 @@ public class AccuracyCalculator
     /**
      * Calculates various statistics concerning the genotypes called correctly
      * @param correct The correct genotypes
-     * @param compareTo the genotypes to test
-     * @param depths The depth (i.e. number of reads) used for each genotype
+     * @param compareTo the genotypes to test (which must also hold the masked
+     * reads and MAF of each genotype)
      * @return Accuracy statistics
      */
-    public static AccuracyStats accuracyStats(List<SingleGenotypeCall> correct, List<SingleGenotypeCall> compareTo,
-            List<SingleGenotypeMasked> depths)
+    public static AccuracyStats accuracyStats(GenotypeBatch correct, GenotypeBatch compareTo)
     {
-        if (!SingleGenotypePosition.samePositions(correct, compareTo) ||
-                !SingleGenotypePosition.samePositions(correct, depths))
+        if (!correct.samePositions(compareTo))
         {
             //SHOULD DO SOMETHING PROPER HERE
             throw new RuntimeException();
@@ -110,8 +105,8 @@ public class AccuracyCalculator
         AccuracyStats stats = new AccuracyStats();
         
         IntStream.range(0, correct.size()).forEach(i ->
-            stats.add(correct.get(i).getCall(), compareTo.get(i).getCall(), 
-                    depths.get(i).getMaskedDepth(), depths.get(i).getMaf()));
+            stats.add(correct.getCall(i), compareTo.getCall(i), 
+                    compareTo.getMaskedDepth(i), compareTo.getMaf(i)));
         
         return stats;
     }
@@ -37,6 +37,7 @@ public class AccuracyStats
         byGeno = new CorrectCountMap();
         byDepthGeno = new TreeMap<>();
         maxDepth = 0;
+        maxGeno = 2;
     }
     
     synchronized void add(byte original, byte imputed, int depth, double maf)
@@ -50,6 +51,7 @@ public class AccuracyStats
         }
         byDepthGeno.get(depth).add(original,original,imputed,maf);
         maxDepth = Math.max(depth, maxDepth);
+        maxGeno = (byte) Math.max(original, maxGeno);
     }
     
     /**
@@ -277,7 +279,19 @@ public class AccuracyStats
         return maxDepth;
     }
     
+    /**
+     * Get the highest true genotype (alt allele dosage) of any genotype used
+     * in the accuracy calculation.  This is at least 2 so that all three
+     * diploid genotypes are always reported.
+     * @return The highest genotype
+     */
+    public byte getMaxGenotype()
+    {
+        return maxGeno;
+    }
+    
     private int maxDepth;
+    private byte maxGeno;
     private final CorrectCount total;
     private final CorrectCountMap byDepth;
     private final CorrectCountMap byGeno;
@@ -287,14 +301,14 @@ public class AccuracyStats
     {
         public CorrectCount()
         {
-            counts = new int[3][3];
+            correct = 0;
             scaledOriginal = new ArrayList<>();
             scaledImputed = new ArrayList<>();
         }
         
         public int getCorrect()
         {
-            return counts[0][0] + counts[1][1] + counts[2][2];
+            return correct;
         }
         
         public int getTotal()
@@ -324,14 +338,17 @@ public class AccuracyStats
         public void add(byte original, byte imputed, double maf)
         {
             t++;
-            counts[original][imputed] ++;
+            if (original == imputed)
+            {
+                correct++;
+            }
             scaledOriginal.add((double) original - maf);
             scaledImputed.add((double) imputed - maf);
         }
         
         final List<Double> scaledOriginal;
         final List<Double> scaledImputed;
-        final int[][] counts;
+        int correct;
         int t;
     }
     
@@ -21,14 +21,11 @@ import Callers.Caller;
 import Exceptions.NotEnoughMaskableGenotypesException;
 import Utils.Distribution.ComparableDistribution;
 import Utils.MAFCalculator;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypePosition;
-import java.util.ArrayList;
+import Utils.SingleGenotype.GenotypeBatch;
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Set;
 
 /**
  * Creates a mask where reads for some genotypes are masked to a given depth
@@ -50,7 +47,7 @@ public class DepthMask
      */
     public DepthMask(int[][][] depths, int number, int minDepth, int maskTo, Caller caller) throws NotEnoughMaskableGenotypesException
     {
-        this(depths,number,minDepth,ComparableDistribution.constantDistribution(maskTo), Method.ALL,new ArrayList<>(), caller);
+        this(depths,number,minDepth,ComparableDistribution.constantDistribution(maskTo), Method.ALL,GenotypeBatch.empty(), caller);
     }
     
     /**
@@ -66,7 +63,7 @@ public class DepthMask
      */
     public DepthMask(int[][][] depths, int number, int minDepth, int maskTo, Method method, Caller caller) throws NotEnoughMaskableGenotypesException
     {
-        this(depths,number,minDepth,ComparableDistribution.constantDistribution(maskTo),method,new ArrayList<>(), caller);
+        this(depths,number,minDepth,ComparableDistribution.constantDistribution(maskTo),method,GenotypeBatch.empty(), caller);
     }
     
     /**
@@ -81,7 +78,7 @@ public class DepthMask
      */
     public DepthMask(int[][][] depths, int number, int minDepth, ComparableDistribution<Integer> maskToDistribution, Caller caller) throws NotEnoughMaskableGenotypesException
     {
-        this(depths,number,minDepth,maskToDistribution,Method.ALL,new ArrayList<>(), caller);
+        this(depths,number,minDepth,maskToDistribution,Method.ALL,GenotypeBatch.empty(), caller);
     }
     
     /**
@@ -91,114 +88,185 @@ public class DepthMask
      * @param minDepth Only mask genotypes with more than this number of reads
      * @param maskToDistribution Mask to this distribution of read depths
      * @param method The method to be used to mask genotypes
-     * @param dontUse A list of genotypes not to use for masking
+     * @param dontUse Genotypes not to use for masking
      * @param caller The genotype caller
      * @throws Exceptions.NotEnoughMaskableGenotypesException If there is not
      *      enough maskable genotypes
      */
     public DepthMask(int[][][] depths, int number, int minDepth, ComparableDistribution<Integer> maskToDistribution, Method method,
-            List<SingleGenotypePosition> dontUse, Caller caller) throws NotEnoughMaskableGenotypesException
+            GenotypeBatch dontUse, Caller caller) throws NotEnoughMaskableGenotypesException
+    {
+        this(depths,number,minDepth,maskToDistribution,method,dontUse,
+                new MAFCalculator(caller,minDepth).maf(depths));
+    }
+    
+    /**
+     * Masks a given number of genotypes to a given distribution of depths
+     * @param depths The original read counts
+     * @param number The number of genotypes to mask
+     * @param minDepth Only mask genotypes with more than this number of reads
+     * @param maskToDistribution Mask to this distribution of read depths
+     * @param method The method to be used to select genotypes to be masked
+     * @param dontUse Genotypes not to use for masking
+     * @param mafs The minor allele frequency of each snp, as calculated by
+     * a MAFCalculator with the same minimum depth
+     * @throws Exceptions.NotEnoughMaskableGenotypesException If there is not
+     *      enough maskable genotypes
+     */
+    public DepthMask(int[][][] depths, int number, int minDepth, ComparableDistribution<Integer> maskToDistribution, Method method,
+            GenotypeBatch dontUse, double[] mafs) throws NotEnoughMaskableGenotypesException
     {
         ComparableDistribution<Integer> maskTo = maskToDistribution.limitTo(0, minDepth);
         r = new Random();
-        list = new ArrayList<>(number);
         
-        ArrayList<SingleGenotypePosition>  selectedList = new ArrayList<>(number);
+        //Genotypes are identified by a single long key while selecting
+        Set<Long> excluded = new HashSet<>();
+        for (int i = 0; i < dontUse.size(); i++)
+        {
+            excluded.add(key(dontUse.getSample(i), dontUse.getSNP(i)));
+        }
+        
+        long[] selected = new long[number];
+        int numberSelected = 0;
         
         switch (method)
         {
-            case ALL:        
-                ArrayList<SingleGenotypePosition> fullList = new ArrayList<>();
+            case ALL:
+                long[] full = new long[16];
+                int fullSize = 0;
                 for (int i = 0; i < depths.length; i++)
                 {
                     for (int j = 0; j < depths[0].length; j++)
                     {
-                        if (reads(depths[i][j]) > minDepth)
+                        if ((reads(depths[i][j]) > minDepth) && !excluded.contains(key(i,j)))
                         {
-                            fullList.add(new SingleGenotypePosition(i,j));
+                            if (fullSize == full.length)
+                            {
+                                full = Arrays.copyOf(full, 2 * full.length);
+                            }
+                            full[fullSize++] = key(i,j);
                         }
                     }
                 }
-                fullList.removeAll(dontUse);
                 
-                if (fullList.size() < number)
+                if (fullSize < number)
                 {
                     throw new NotEnoughMaskableGenotypesException();
                 }
 
-                //int flSize = fullList.size();
+                //Partial Fisher-Yates shuffle - the first number entries end
+                //up being a random selection without replacement
                 for (int n = 0; n < number; n++)
                 {
-                    int selected = r.nextInt(fullList.size());
-                    //selectedList.add(fullList.get(r.nextInt(flSize)));
-                    selectedList.add(fullList.get(selected));
-                    fullList.remove(selected);
+                    int choice = n + r.nextInt(fullSize - n);
+                    long chosen = full[choice];
+                    full[choice] = full[n];
+                    full[n] = chosen;
+                    selected[numberSelected++] = chosen;
                 }
                 break;
             case BYSNP:
-                while (selectedList.size() < number)
+                //Chosen genotypes are excluded so without enough to choose
+                //from the loop would never end
+                if (maskable(depths, minDepth, excluded) < number)
+                {
+                    throw new NotEnoughMaskableGenotypesException();
+                }
+                while (numberSelected < number)
                 {
                     int snp = r.nextInt(depths[0].length);
-                    ArrayList<SingleGenotypePosition> snpList = new ArrayList<>();
+                    long[] snpList = new long[depths.length];
+                    int snpSize = 0;
                     for (int i = 0; i < depths.length; i++)
                     {
-                        if (reads(depths[i][snp]) > minDepth)
+                        if ((reads(depths[i][snp]) > minDepth) && !excluded.contains(key(i,snp)))
                         {
-                            snpList.add(new SingleGenotypePosition(i,snp));
+                            snpList[snpSize++] = key(i,snp);
                         }
                     }
-                    snpList.removeAll(dontUse);
-                    snpList.removeAll(selectedList);
                     
-                    if (snpList.size() > 0)
+                    if (snpSize > 0)
                     {
-                        selectedList.add(snpList.get(r.nextInt(snpList.size())));
+                        long chosen = snpList[r.nextInt(snpSize)];
+                        selected[numberSelected++] = chosen;
+                        excluded.add(chosen);
                     }
                 }
                 break;
             case BYSAMPLE:
-                while (selectedList.size() < number)
+                //Chosen genotypes are excluded so without enough to choose
+                //from the loop would never end
+                if (maskable(depths, minDepth, excluded) < number)
+                {
+                    throw new NotEnoughMaskableGenotypesException();
+                }
+                while (numberSelected < number)
                 {
                     int sample = r.nextInt(depths.length);
-                    ArrayList<SingleGenotypePosition> sampleList = new ArrayList<>();
+                    long[] sampleList = new long[depths[0].length];
+                    int sampleSize = 0;
                     for (int i = 0; i < depths[0].length; i++)
                     {
-                        if (reads(depths[sample][i]) > minDepth)
+                        if ((reads(depths[sample][i]) > minDepth) && !excluded.contains(key(sample,i)))
                         {
-                            sampleList.add(new SingleGenotypePosition(sample,i));
+                            sampleList[sampleSize++] = key(sample,i);
                         }
                     }
-                    sampleList.removeAll(dontUse);
-                    sampleList.removeAll(selectedList);
                     
-                    if (sampleList.size() > 0)
+                    if (sampleSize > 0)
                     {
-                        selectedList.add(sampleList.get(r.nextInt(sampleList.size())));
+                        long chosen = sampleList[r.nextInt(sampleSize)];
+                        selected[numberSelected++] = chosen;
+                        excluded.add(chosen);
                     }
                 }
                 break;
         }
 
-        MAFCalculator mafCalc = new MAFCalculator(caller,minDepth);
-        
-        for (SingleGenotypePosition random: selectedList)
+        int[] samples = new int[number];
+        int[] snps = new int[number];
+        int[] original = new int[2 * number];
+        int[] masked = new int[2 * number];
+        double[] genoMafs = new double[number];
+        for (int n = 0; n < number; n++)
         {
-            int sample = random.getSample();
-            int snp = random.getSNP();
-
-            int[][] d = new int[depths.length][];
-            for (int i = 0; i < depths.length; i++)
-            {
-                d[i] = depths[i][snp];
-            }
-
-            double maf = mafCalc.maf(d);
+            int sample = (int) (selected[n] >>> 32);
+            int snp = (int) selected[n];
             
-            list.add(new SingleGenotypeMasked(sample,snp,depths[sample][snp],mask(depths[sample][snp],maskTo.sample()),maf));
+            samples[n] = sample;
+            snps[n] = snp;
+            original[2 * n] = depths[sample][snp][0];
+            original[2 * n + 1] = depths[sample][snp][1];
+            int[] m = mask(depths[sample][snp],maskTo.sample());
+            masked[2 * n] = m[0];
+            masked[2 * n + 1] = m[1];
+            genoMafs[n] = mafs[snp];
         }
+        batch = new GenotypeBatch(samples, snps, original, masked, genoMafs);
         
         this.depths = depths;
     }
+    
+    private int maskable(int[][][] depths, int minDepth, Set<Long> excluded)
+    {
+        int count = 0;
+        for (int i = 0; i < depths.length; i++)
+        {
+            for (int j = 0; j < depths[i].length; j++)
+            {
+                if ((reads(depths[i][j]) > minDepth) && !excluded.contains(key(i,j)))
+                {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    private static long key(int sample, int snp)
+    {
+        return ((long) sample << 32) | (snp & 0xFFFFFFFFL);
+    }
 
     private int[] mask(int[] orig, int maskTo)
     {
@@ -227,34 +295,27 @@ public class DepthMask
      */
     public int[][][] maskedArray()
     {
-        int[][][] masked = new int[depths.length][][];
+        int[][][] maskedReads = new int[depths.length][][];
         for (int a = 0; a < depths.length; a++)
         {
-            masked[a] = Arrays.copyOf(depths[a], depths[a].length);
+            maskedReads[a] = Arrays.copyOf(depths[a], depths[a].length);
         }
-        for (SingleGenotypeMasked mg: list)
+        for (int i = 0; i < batch.size(); i++)
         {
-            masked[mg.getSample()][mg.getSNP()] = mg.getMasked();
+            maskedReads[batch.getSample(i)][batch.getSNP(i)] =
+                    new int[]{batch.getMasked(i, 0), batch.getMasked(i, 1)};
         }
-        return masked;
-    }
-    
-    /**
-     * Get a list of masked reads
-     * @return List of masked reads
-     */
-    public List<SingleGenotypeMasked> maskedList()
-    {
-        return list;
+        return maskedReads;
     }
     
     /**
-     * Get a list of masked positions
-     * @return List of positions - one per masked genotype
+     * Get the masked genotypes, with their original and masked reads and minor
+     * allele frequencies
+     * @return The masked genotypes
      */
-    public List<SingleGenotypePosition> maskedPositions()
+    public GenotypeBatch maskedBatch()
     {
-        return list.stream().map(p -> new SingleGenotypePosition(p.getSample(), p.getSNP())).collect(Collectors.toCollection(ArrayList::new));
+        return batch;
     }
     
     /**
@@ -263,7 +324,7 @@ public class DepthMask
      */
     public int size()
     {
-        return list.size();
+        return batch.size();
     }
     
     private int reads(int[] depths)
@@ -273,7 +334,7 @@ public class DepthMask
     
     private int[][][] depths;
     private final Random r;
-    private final List<SingleGenotypeMasked> list;
+    private final GenotypeBatch batch;
     
     /**
      * Represents the method to be used to select genotypes to be masked
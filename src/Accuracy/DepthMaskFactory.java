@@ -21,11 +21,10 @@ import Accuracy.DepthMask.Method;
 import Callers.Caller;
 import Exceptions.NotEnoughMaskableGenotypesException;
 import Utils.Distribution.ComparableDistribution;
-import Utils.Distribution.ComparableDistributionCollector;
-import Utils.SingleGenotype.SingleGenotypePosition;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import Utils.Distribution.CountMap;
+import Utils.MAFCalculator;
+import Utils.Parallel;
+import Utils.SingleGenotype.GenotypeBatch;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
@@ -77,17 +76,52 @@ public class DepthMaskFactory
     /**
      * Get a depth mask
      * @param readCounts The reads to mask
-     * @param dontUse A list of genotypes not to mask
+     * @param dontUse Genotypes not to mask
      * @param caller The genotype caller to use
      * @return A depth mask
      * @throws NotEnoughMaskableGenotypesException If there is not enough maskable genotypes
      */
-    public DepthMask getDepthMask(int[][][] readCounts, List<SingleGenotypePosition> dontUse, Caller caller)  throws NotEnoughMaskableGenotypesException
+    public DepthMask getDepthMask(int[][][] readCounts, GenotypeBatch dontUse, Caller caller)  throws NotEnoughMaskableGenotypesException
     {
-        ComparableDistribution<Integer> fulldist = Arrays.stream(readCounts).parallel().flatMap(rc -> Arrays.stream(rc).map(r -> r[0] + r[1])).collect(new ComparableDistributionCollector<>());
+        //Depths are counted for each sample in parallel then added together
+        CountMap<Integer>[] counts = newCountMaps(readCounts.length);
+        Parallel.forEach(readCounts.length, i ->
+        {
+            CountMap<Integer> c = new CountMap<>();
+            for (int[] r: readCounts[i])
+            {
+                c.add(r[0] + r[1]);
+            }
+            counts[i] = c;
+        });
+        CountMap<Integer> all = new CountMap<>();
+        for (CountMap<Integer> c: counts)
+        {
+            all.addAll(c);
+        }
+        ComparableDistribution<Integer> fulldist = new ComparableDistribution<>(all);
         ComparableDistribution<Integer> dist = fulldist.limitTo(0, limitDist);
         
-        return new DepthMask(readCounts,number,minDepth,dist,method,dontUse, caller);
+        return new DepthMask(readCounts,number,minDepth,dist,method,dontUse, getMafs(readCounts, caller));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static CountMap<Integer>[] newCountMaps(int n)
+    {
+        return (CountMap<Integer>[]) new CountMap<?>[n];
+    }
+    
+    //Masks for the same reads (e.g. the mask and validation mask for a case)
+    //use the same per snp MAFs so cache them for the last reads used
+    private synchronized double[] getMafs(int[][][] readCounts, Caller caller)
+    {
+        if ((readCounts != cachedReads) || (caller != cachedCaller))
+        {
+            cachedMafs = new MAFCalculator(caller,minDepth).maf(readCounts);
+            cachedReads = readCounts;
+            cachedCaller = caller;
+        }
+        return cachedMafs;
     }
     
     /**
@@ -99,7 +133,7 @@ public class DepthMaskFactory
      */
     public DepthMask getDepthMask(int[][][] readCounts, Caller caller)  throws NotEnoughMaskableGenotypesException
     {
-        return getDepthMask(readCounts, new ArrayList<>(), caller);
+        return getDepthMask(readCounts, GenotypeBatch.empty(), caller);
     }
     
     /**
@@ -136,4 +170,8 @@ public class DepthMaskFactory
     private final int number;
     private final int minDepth;
     private final int limitDist;
+    
+    private int[][][] cachedReads = null;
+    private Caller cachedCaller = null;
+    private double[] cachedMafs = null;
 }
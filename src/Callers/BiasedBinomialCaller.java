@@ -35,9 +35,23 @@ public class BiasedBinomialCaller extends Caller
      * @param bias The bias - given as the probability of the allele coded 0
      */
     public BiasedBinomialCaller(double error, double bias)
+    {
+        this(error,bias,DEFAULT_TABLE_DEPTH);
+    }
+    
+    /**
+     * Creates a biased caller with the given error and bias
+     * @param error The error rate
+     * @param bias The bias - given as the probability of the allele coded 0
+     * @param tableDepth Calls for genotypes with up to this read depth are
+     * precomputed
+     */
+    public BiasedBinomialCaller(double error, double bias, int tableDepth)
     {
         this.error = error;
         this.bias = bias;
+        
+        tabulate(tableDepth);
     }
 
     /**
@@ -46,8 +60,10 @@ public class BiasedBinomialCaller extends Caller
      */
     public BiasedBinomialCaller(HierarchicalConfiguration<ImmutableNode> params)
     {
-        error = params.getInt("error");
-        bias = params.getInt("bias");
+        error = params.getDouble("error");
+        bias = params.getDouble("bias");
+        
+        tabulate(params.getInt("tabledepth",DEFAULT_TABLE_DEPTH));
     }
     
     /**
@@ -55,7 +71,7 @@ public class BiasedBinomialCaller extends Caller
      * @param d The reads
      * @return The called genotype
      */
-    public double[] callSingle(int[] d)
+    protected double[] calculate(int[] d)
     {
         if ((d[0] + d[1]) != 0)
         {
@@ -84,10 +100,12 @@ public class BiasedBinomialCaller extends Caller
     {
         ImmutableNode Ierror = new ImmutableNode.Builder().name("error").value(error).create();
         ImmutableNode Ibias = new ImmutableNode.Builder().name("bias").value(bias).create(); 
+        ImmutableNode Itable = new ImmutableNode.Builder().name("tabledepth").value(getTableDepth()).create(); 
         
         ImmutableNode config = new ImmutableNode.Builder().name("caller")
                 .addChild(Ierror)
                 .addChild(Ibias)
+                .addChild(Itable)
                 .addAttribute("name", "BiasedBinomial")
                 .create();
         
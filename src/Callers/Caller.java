@@ -1,92 +1,435 @@
-/*
- * This file is part of LinkImputeR.
- * 
- * LinkImputeR is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * LinkImputeR is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package Callers;
-
-import Utils.Progress.Progress;
-import Utils.Progress.ProgressFactory;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import Utils.SingleGenotype.SingleGenotypeReads;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import org.apache.commons.configuration2.tree.ImmutableNode;
-
-/**
- * Represents a genotype caller
- * @author Daniel Money
- * @version 1.1.3
- */
-public abstract class Caller
-{
-
-    /**
-     * Call a single genotype
-     * @param reads Array of size two with the reads for the two alleles
-     * @return The probability of each genotype (size 3 - genotype 0, 1, 2)
-     */
-    public abstract double[] callSingle(int[] reads);
-    
-    /**
-     * Calls genotypes for every genotype
-     * @param reads Array of reads, dimensions are number of positions, number
-     * of snps, 2 (i.e. counts for each allele)
-     * @return The probability of each genotypes
-     */
-    public double[][][] call(int[][][] reads)
-    {
-        double[][][] probs = new double[reads.length][][];
-        
-        Progress progress = ProgressFactory.get(reads.length);
-        
-        IntStream.range(0, reads.length).parallel().forEach(i ->
-            {
-                int[][] d = reads[i];
-                double[][] p = new double[d.length][];
-                probs[i] = p;
-                IntStream.range(0,d.length).forEach(j -> p[j] = callSingle(reads[i][j]));
-                progress.done();
-            }
-        );
-        
-        return probs;
-    }
-    
-    /**
-     * Call the selected genotypes
-     * @param list The genotypes to call
-     * @return The probabilities of each genotype
-     */
-    public List<SingleGenotypeProbability> call(List<SingleGenotypeReads> list)
-    {
-        Progress progress = ProgressFactory.get(list.size());
-        return list.stream().parallel().map(sgr ->
-        {
-            SingleGenotypeProbability sgp = new SingleGenotypeProbability(
-                sgr.getSample(), sgr.getSNP(), callSingle(sgr.getReads()));
-            progress.done();
-            return sgp;
-        }).collect(Collectors.toCollection(ArrayList::new));
-    }
-
-    /**
-     * Get the config for the caller
-     * @return The config
-     */
-    public abstract ImmutableNode getConfig();
-}
+/*
+ * This file is part of LinkImputeR.
+ * 
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Callers;
+
+import Utils.GenotypeProbabilities;
+import Utils.Parallel;
+import Utils.ProbToCall;
+import Utils.Progress.Progress;
+import Utils.Progress.ProgressFactory;
+import Utils.SingleGenotype.GenotypeBatch;
+import java.util.Arrays;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * Represents a genotype caller.  Subclasses supply the calculation of
+ * genotype probabilities from reads for a single genotype and may also supply
+ * a faster calculation for a block of genotypes at once.  Tabulation and
+ * parallelisation are handled here.  New callers can be made available
+ * without changing LinkImputeR by providing them through a CallerProvider.
+ * 
+ * Genotypes are coded by their alt allele dosage, from 0 to the caller's
+ * ploidy, so a caller gives ploidy + 1 probabilities per genotype (three for
+ * the default of diploid).  Wherever probabilities for more than one genotype
+ * are stored together in a single array those for each genotype are next to
+ * each other.
+ * @author Daniel Money
+ * @version 1.1.3
+ */
+public abstract class Caller
+{
+
+    /**
+     * Call a single genotype.  If the caller has been tabulated (see tabulate)
+     * and the total read depth is within the table this is a table lookup,
+     * otherwise the probabilities are calculated.
+     * @param reads Array of size two with the reads for the two alleles
+     * @return The probability of each genotype (size ploidy + 1)
+     */
+    public double[] callSingle(int[] reads)
+    {
+        int depth = reads[0] + reads[1];
+        if (depth <= tableDepth)
+        {
+            int g = getGenotypes();
+            int i = g * index(depth, reads[1]);
+            return Arrays.copyOfRange(table, i, i + g);
+        }
+        return calculate(reads);
+    }
+    
+    /**
+     * Calls a block of genotypes, writing the probabilities into a
+     * preallocated array.  Genotypes within the caller's table are looked up
+     * and the rest are calculated together as a single block.
+     * @param ref The reads for the allele coded 0 for each genotype
+     * @param alt The reads for the allele coded 1 for each genotype
+     * @param n The number of genotypes in the block (the arrays may be longer)
+     * @param probs Array the probabilities are written to, ploidy + 1 per
+     * genotype
+     */
+    public void call(int[] ref, int[] alt, int n, double[] probs)
+    {
+        int g = getGenotypes();
+        int[] where = null;
+        int[] cref = null;
+        int[] calt = null;
+        int m = 0;
+        for (int k = 0; k < n; k++)
+        {
+            int depth = ref[k] + alt[k];
+            if (depth <= tableDepth)
+            {
+                System.arraycopy(table, g * index(depth, alt[k]), probs, g * k, g);
+            }
+            else
+            {
+                if (where == null)
+                {
+                    where = new int[n - k];
+                    cref = new int[n - k];
+                    calt = new int[n - k];
+                }
+                where[m] = k;
+                cref[m] = ref[k];
+                calt[m] = alt[k];
+                m++;
+            }
+        }
+        if (m > 0)
+        {
+            double[] p = new double[g * m];
+            calculate(cref, calt, m, p);
+            for (int l = 0; l < m; l++)
+            {
+                System.arraycopy(p, g * l, probs, g * where[l], g);
+            }
+        }
+    }
+    
+    /**
+     * Calls the most probable genotype for a single genotype.  If the caller
+     * has been tabulated and the total read depth is within the table this is
+     * a table lookup and no probabilities are calculated.
+     * @param reads Array of size two with the reads for the two alleles
+     * @return The most probable genotype (-1 if no genotype has a probability
+     * above zero)
+     */
+    public byte callGenotype(int[] reads)
+    {
+        int depth = reads[0] + reads[1];
+        if (depth <= tableDepth)
+        {
+            return tableCalls[index(depth, reads[1])];
+        }
+        double[] p = calculate(reads);
+        return ProbToCall.mostProbable(p, 0, p.length);
+    }
+    
+    /**
+     * Calculate the probabilities for a single genotype (i.e. without using
+     * any table)
+     * @param reads Array of size two with the reads for the two alleles
+     * @return The probability of each genotype (size ploidy + 1)
+     */
+    protected abstract double[] calculate(int[] reads);
+    
+    /**
+     * Calculate the probabilities for a batch of genotypes (i.e. without using
+     * any table).  Must give the same results as calculate for each genotype.
+     * By default calls calculate for each genotype in turn; callers whose
+     * calculation can be written as simple loops over the flat arrays should
+     * override this so the JIT can compile those loops to vector instructions.
+     * @param ref The reads for the allele coded 0 for each genotype
+     * @param alt The reads for the allele coded 1 for each genotype
+     * @param n The number of genotypes in the batch (the arrays may be longer)
+     * @param probs Array the probabilities are written to, ploidy + 1 per
+     * genotype
+     */
+    protected void calculate(int[] ref, int[] alt, int n, double[] probs)
+    {
+        int g = getGenotypes();
+        int[] reads = new int[2];
+        for (int k = 0; k < n; k++)
+        {
+            reads[0] = ref[k];
+            reads[1] = alt[k];
+            System.arraycopy(calculate(reads), 0, probs, g * k, g);
+        }
+    }
+    
+    /**
+     * Precomputes the probabilities for every pair of read counts with a total
+     * depth up to the given depth, after which calls within that depth are
+     * table lookups.  The table grows with the square of the depth so depths
+     * above MAX_TABLE_DEPTH are not tabulated, and genotypes with more reads
+     * than that are calculated when called.  Should be called at the end of a
+     * subclass's constructor once everything needed by calculate has been set
+     * up.
+     * 
+     * The table is calculated as a single block.  When assertions are enabled
+     * it is also checked against calculating each genotype on its own (see
+     * getTolerance).
+     * @param maxDepth The maximum total depth to tabulate
+     */
+    protected void tabulate(int maxDepth)
+    {
+        int depth = Math.max(-1, Math.min(maxDepth, MAX_TABLE_DEPTH));
+        int g = getGenotypes();
+        //Sized in long as depth is only small because of the cap
+        long size = ((long) depth + 1L) * ((long) depth + 2L) / 2L;
+        int[] ref = new int[(int) size];
+        int[] alt = new int[ref.length];
+        for (int d = 0; d <= depth; d++)
+        {
+            for (int a = 0; a <= d; a++)
+            {
+                int i = index(d, a);
+                ref[i] = d - a;
+                alt[i] = a;
+            }
+        }
+        double[] t = new double[g * ref.length];
+        calculate(ref, alt, ref.length, t);
+        assert matchesSingle(ref, alt, t);
+        
+        byte[] c = new byte[ref.length];
+        for (int i = 0; i < ref.length; i++)
+        {
+            c[i] = ProbToCall.mostProbable(t, g * i, g);
+        }
+        table = t;
+        tableCalls = c;
+        tableDepth = depth;
+    }
+    
+    /**
+     * How far apart the block and single genotype calculations of the same
+     * probability may be.  By default they must be identical; a caller whose
+     * block calculation uses different arithmetic (for example single
+     * precision) should override this.
+     * @return The tolerance
+     */
+    protected double getTolerance()
+    {
+        return 0.0;
+    }
+    
+    //Checks a block calculation against calculating each genotype on its own.
+    //Only called when assertions are enabled.
+    private boolean matchesSingle(int[] ref, int[] alt, double[] probs)
+    {
+        int g = getGenotypes();
+        double tolerance = getTolerance();
+        int[] reads = new int[2];
+        for (int i = 0; i < ref.length; i++)
+        {
+            reads[0] = ref[i];
+            reads[1] = alt[i];
+            double[] p = calculate(reads);
+            for (int k = 0; k < g; k++)
+            {
+                if (!(Math.abs(p[k] - probs[g * i + k]) <= tolerance))
+                {
+                    throw new AssertionError(getClass().getName() + " gives different probabilities for "
+                            + ref[i] + "," + alt[i] + " reads when calculating a block of genotypes");
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Get the maximum depth for which calls are table lookups
+     * @return The maximum depth (-1 if the caller has not been tabulated)
+     */
+    public int getTableDepth()
+    {
+        return tableDepth;
+    }
+    
+    /**
+     * Get the ploidy genotypes are called at.  By default diploid; callers
+     * for other ploidies must override this.
+     * @return The ploidy
+     */
+    public int getPloidy()
+    {
+        return 2;
+    }
+    
+    /**
+     * Get the number of genotypes, i.e. the number of probabilities given for
+     * each call (ploidy + 1)
+     * @return The number of genotypes
+     */
+    public final int getGenotypes()
+    {
+        return getPloidy() + 1;
+    }
+    
+    //Table is indexed by total depth then alt read count with the
+    //probabilities for each stored together, so the entry index given here
+    //must be multiplied by the number of genotypes to get the position in the
+    //table
+    private static int index(int depth, int alt)
+    {
+        return depth * (depth + 1) / 2 + alt;
+    }
+    
+    /**
+     * Calls genotypes for every genotype.  The most probable genotype for each
+     * is found in the same pass and stored with the probabilities (see
+     * GenotypeProbabilities.getCalls) so hard calls can later be made without
+     * going back through the probabilities.
+     * @param reads Array of reads, dimensions are number of positions, number
+     * of snps, 2 (i.e. counts for each allele)
+     * @return The probability of each genotypes
+     */
+    public GenotypeProbabilities call(int[][][] reads)
+    {
+        int snps = (reads.length > 0) ? reads[0].length : 0;
+        int g = getGenotypes();
+        GenotypeProbabilities probs = GenotypeProbabilities.create(reads.length, snps, g);
+        byte[][] calls = new byte[reads.length][];
+        
+        Progress progress = ProgressFactory.get(reads.length);
+        
+        Parallel.forEach(reads.length, i ->
+            {
+                int[][] d = reads[i];
+                byte[] c = new byte[d.length];
+                //Genotypes not in the table are gathered into flat arrays and
+                //calculated together
+                int[] where = null;
+                int[] ref = null;
+                int[] alt = null;
+                int n = 0;
+                for (int j = 0; j < d.length; j++)
+                {
+                    int depth = d[j][0] + d[j][1];
+                    if (depth <= tableDepth)
+                    {
+                        int t = index(depth, d[j][1]);
+                        probs.setSingle(i, j, table, g * t);
+                        c[j] = tableCalls[t];
+                    }
+                    else
+                    {
+                        if (where == null)
+                        {
+                            where = new int[d.length - j];
+                            ref = new int[d.length - j];
+                            alt = new int[d.length - j];
+                        }
+                        where[n] = j;
+                        ref[n] = d[j][0];
+                        alt[n] = d[j][1];
+                        n++;
+                    }
+                }
+                if (n > 0)
+                {
+                    double[] p = new double[g * n];
+                    calculate(ref, alt, n, p);
+                    for (int k = 0; k < n; k++)
+                    {
+                        int j = where[k];
+                        probs.setSingle(i, j, p, g * k);
+                        c[j] = ProbToCall.mostProbable(p, g * k, g);
+                    }
+                }
+                calls[i] = c;
+                progress.done();
+            }
+        );
+        
+        probs.setCalls(calls);
+        return probs;
+    }
+    
+    /**
+     * Calls the masked reads of a batch of genotypes
+     * @param batch The genotypes to call
+     * @return The genotypes with the probability of each genotype
+     */
+    public GenotypeBatch call(GenotypeBatch batch)
+    {
+        int n = batch.size();
+        int g = getGenotypes();
+        double[] probs = new double[g * n];
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        Parallel.forEach(blocks, b ->
+        {
+            int start = b * BLOCK_SIZE;
+            int size = Math.min(BLOCK_SIZE, n - start);
+            int[] ref = new int[size];
+            int[] alt = new int[size];
+            for (int k = 0; k < size; k++)
+            {
+                ref[k] = batch.getMasked(start + k, 0);
+                alt[k] = batch.getMasked(start + k, 1);
+            }
+            double[] p = new double[g * size];
+            call(ref, alt, size, p);
+            System.arraycopy(p, 0, probs, g * start, g * size);
+        });
+        return batch.withProbabilities(probs, g);
+    }
+    
+    /**
+     * Calls the most probable genotype from the original (unmasked) reads of a
+     * batch of genotypes without keeping the probabilities, e.g. to get the
+     * correct genotypes when calculating accuracy
+     * @param batch The genotypes to call
+     * @return The genotypes with their calls
+     */
+    public GenotypeBatch callOriginal(GenotypeBatch batch)
+    {
+        byte[] calls = new byte[batch.size()];
+        Parallel.forEach(batch.size(), i ->
+            calls[i] = callGenotype(new int[]{batch.getOriginal(i, 0), batch.getOriginal(i, 1)}));
+        return batch.withCalls(calls);
+    }
+
+    /**
+     * Fits any parameters the caller estimates from the data.  Should be
+     * called, with the reads to be called, before calling.
+     * @param reads Array of reads, dimensions are number of samples, number
+     * of snps, 2 (i.e. counts for each allele)
+     * @return A caller using the fitted parameters.  By default, for callers
+     * with nothing to fit, this caller.
+     */
+    public Caller fit(int[][][] reads)
+    {
+        return this;
+    }
+
+    /**
+     * Get the config for the caller
+     * @return The config
+     */
+    public abstract ImmutableNode getConfig();
+    
+    private double[] table = null;
+    private byte[] tableCalls = null;
+    
+    private static final int BLOCK_SIZE = 1024;
+    private int tableDepth = -1;
+    
+    /**
+     * The default maximum depth tabulated by callers
+     */
+    protected static final int DEFAULT_TABLE_DEPTH = 100;
+    
+    /**
+     * The largest depth that is ever tabulated, whatever depth is asked for.
+     * At this depth the table holds a little over 20,000 entries.
+     */
+    public static final int MAX_TABLE_DEPTH = 200;
+}
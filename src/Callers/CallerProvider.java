@@ -0,0 +1,43 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Callers;
+
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * Provides callers so they can be used in LinkImputeR configurations.
+ * Providers are found using ServiceLoader, so a jar containing new callers
+ * (for example a faster calculation engine) can be made available by listing
+ * its provider in META-INF/services/Callers.CallerProvider and putting it on
+ * the classpath.  Callers are found by the name attribute of the caller
+ * element in a configuration.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public interface CallerProvider
+{
+
+    /**
+     * Get the callers provided
+     * @return Map from the name used in configurations to a function creating
+     * the caller from its configuration
+     */
+    Map<String,Function<HierarchicalConfiguration<ImmutableNode>,Caller>> getCallers();
+}
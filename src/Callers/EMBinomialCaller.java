@@ -0,0 +1,240 @@
+/*
+ * This file is part of LinkImputeR.
+ * 
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Callers;
+
+import Utils.Log;
+import Utils.Parallel;
+import java.util.Arrays;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * A biased binomial caller whose error rate and bias are estimated from the
+ * data by EM (see fit).  Until fitted it calls using the starting error and
+ * bias.
+ * 
+ * Each position has its own genotype frequencies, which are estimated along
+ * with the error and bias.  Each EM sweep runs in parallel over positions,
+ * with each position contributing to summed sufficient statistics from which
+ * the error and bias are updated.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class EMBinomialCaller extends LogBiasedBinomialCaller
+{
+
+    /**
+     * Creates the caller
+     * @param error The starting error rate
+     * @param bias The starting bias - given as the probability of the allele
+     * coded 0
+     * @param tableDepth Calls for genotypes with up to this read depth are
+     * precomputed
+     */
+    public EMBinomialCaller(double error, double bias, int tableDepth)
+    {
+        this(error,bias,tableDepth,DEFAULT_ITERATIONS,DEFAULT_TOLERANCE);
+    }
+    
+    /**
+     * Creates the caller
+     * @param error The starting error rate
+     * @param bias The starting bias - given as the probability of the allele
+     * coded 0
+     * @param tableDepth Calls for genotypes with up to this read depth are
+     * precomputed
+     * @param iterations The maximum number of EM sweeps
+     * @param tolerance EM stops once neither the error nor the bias changes by
+     * more than this in a sweep
+     */
+    public EMBinomialCaller(double error, double bias, int tableDepth, int iterations, double tolerance)
+    {
+        super(error,bias,tableDepth);
+        this.iterations = iterations;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Creates the caller from the given configuration
+     * @param params The configuration
+     */
+    public EMBinomialCaller(HierarchicalConfiguration<ImmutableNode> params)
+    {
+        this(params.getDouble("error",0.01),params.getDouble("bias",0.5),
+                params.getInt("tabledepth",DEFAULT_TABLE_DEPTH),
+                params.getInt("iterations",DEFAULT_ITERATIONS),
+                params.getDouble("tolerance",DEFAULT_TOLERANCE));
+    }
+    
+    /**
+     * Estimates the error rate and bias from the reads by EM and returns a
+     * caller using them
+     * @param reads Array of reads, dimensions are number of samples, number
+     * of snps, 2 (i.e. counts for each allele)
+     * @return A LogBiasedBinomialCaller with the fitted error and bias
+     */
+    @Override
+    public Caller fit(int[][][] reads)
+    {
+        int samples = reads.length;
+        int snps = (samples > 0) ? reads[0].length : 0;
+        
+        //Genotype frequencies for each position, three per position
+        double[] freqs = new double[3 * snps];
+        Arrays.fill(freqs, 1.0 / 3.0);
+        //Sufficient statistics for each position - expected error reads,
+        //expected reads from homozygotes, expected allele 0 reads from
+        //heterozygotes and expected reads from heterozygotes
+        double[] stats = new double[4 * snps];
+        
+        double e = error;
+        double b = bias;
+        int iteration = 0;
+        boolean converged = false;
+        while (!converged && (iteration < iterations))
+        {
+            double le = Math.log(e);
+            double l1me = Math.log1p(-e);
+            double lb = Math.log(b);
+            double l1mb = Math.log1p(-b);
+            
+            Parallel.forEach(snps, j ->
+            {
+                double f0 = freqs[3 * j];
+                double f1 = freqs[3 * j + 1];
+                double f2 = freqs[3 * j + 2];
+                double lf0 = Math.log(f0);
+                double lf1 = Math.log(f1);
+                double lf2 = Math.log(f2);
+                
+                double n0 = 0.0;
+                double n1 = 0.0;
+                double n2 = 0.0;
+                double errors = 0.0;
+                double homReads = 0.0;
+                double hetRef = 0.0;
+                double hetReads = 0.0;
+                int n = 0;
+                for (int i = 0; i < samples; i++)
+                {
+                    int r0 = reads[i][j][0];
+                    int r1 = reads[i][j][1];
+                    int depth = r0 + r1;
+                    if (depth > 0)
+                    {
+                        double ll0 = lf0 + r0 * l1me + r1 * le;
+                        double ll1 = lf1 + r0 * lb + r1 * l1mb;
+                        double ll2 = lf2 + r0 * le + r1 * l1me;
+                        double maxll = Math.max(ll0,Math.max(ll1,ll2));
+                        double w0 = Math.exp(ll0 - maxll);
+                        double w1 = Math.exp(ll1 - maxll);
+                        double w2 = Math.exp(ll2 - maxll);
+                        double total = w0 + w1 + w2;
+                        w0 /= total;
+                        w1 /= total;
+                        w2 /= total;
+                        
+                        n0 += w0;
+                        n1 += w1;
+                        n2 += w2;
+                        errors += w0 * r1 + w2 * r0;
+                        homReads += (w0 + w2) * depth;
+                        hetRef += w1 * r0;
+                        hetReads += w1 * depth;
+                        n++;
+                    }
+                }
+                if (n > 0)
+                {
+                    //Keep frequencies away from zero so a genotype can never be
+                    //ruled out at a position, then rescale so they still sum
+                    //to one
+                    double c0 = Math.max(n0 / n, MIN_FREQ);
+                    double c1 = Math.max(n1 / n, MIN_FREQ);
+                    double c2 = Math.max(n2 / n, MIN_FREQ);
+                    double sum = c0 + c1 + c2;
+                    freqs[3 * j] = c0 / sum;
+                    freqs[3 * j + 1] = c1 / sum;
+                    freqs[3 * j + 2] = c2 / sum;
+                }
+                stats[4 * j] = errors;
+                stats[4 * j + 1] = homReads;
+                stats[4 * j + 2] = hetRef;
+                stats[4 * j + 3] = hetReads;
+            });
+            
+            double errors = 0.0;
+            double homReads = 0.0;
+            double hetRef = 0.0;
+            double hetReads = 0.0;
+            for (int j = 0; j < snps; j++)
+            {
+                errors += stats[4 * j];
+                homReads += stats[4 * j + 1];
+                hetRef += stats[4 * j + 2];
+                hetReads += stats[4 * j + 3];
+            }
+            
+            double newE = (homReads > 0.0) ? clamp(errors / homReads, MIN_ERROR, MAX_ERROR) : e;
+            double newB = (hetReads > 0.0) ? clamp(hetRef / hetReads, MIN_BIAS, 1.0 - MIN_BIAS) : b;
+            converged = (Math.abs(newE - e) <= tolerance) && (Math.abs(newB - b) <= tolerance);
+            e = newE;
+            b = newB;
+            iteration++;
+        }
+        
+        Log.detail("EM caller: error " + e + ", bias " + b + " after " + iteration + " sweeps");
+        
+        return new LogBiasedBinomialCaller(e,b,getTableDepth());
+    }
+    
+    private static double clamp(double v, double min, double max)
+    {
+        return Math.min(max, Math.max(min, v));
+    }
+    
+    public ImmutableNode getConfig()
+    {
+        ImmutableNode Ierror = new ImmutableNode.Builder().name("error").value(error).create();
+        ImmutableNode Ibias = new ImmutableNode.Builder().name("bias").value(bias).create(); 
+        ImmutableNode Itable = new ImmutableNode.Builder().name("tabledepth").value(getTableDepth()).create(); 
+        ImmutableNode Iiterations = new ImmutableNode.Builder().name("iterations").value(iterations).create(); 
+        ImmutableNode Itolerance = new ImmutableNode.Builder().name("tolerance").value(tolerance).create(); 
+        
+        ImmutableNode config = new ImmutableNode.Builder().name("caller")
+                .addChild(Ierror)
+                .addChild(Ibias)
+                .addChild(Itable)
+                .addChild(Iiterations)
+                .addChild(Itolerance)
+                .addAttribute("name", "EMBinomial")
+                .create();
+        
+        return config;
+    }
+    
+    private final int iterations;
+    private final double tolerance;
+    
+    private static final int DEFAULT_ITERATIONS = 20;
+    private static final double DEFAULT_TOLERANCE = 1e-5;
+    private static final double MIN_FREQ = 1e-6;
+    private static final double MIN_ERROR = 1e-6;
+    private static final double MAX_ERROR = 0.25;
+    private static final double MIN_BIAS = 0.05;
+}
@@ -35,6 +35,18 @@ public class LogBiasedBinomialCaller extends Caller
      * @param bias The bias - given as the probability of the allele coded 0
      */
     public LogBiasedBinomialCaller(double error, double bias)
+    {
+        this(error,bias,DEFAULT_TABLE_DEPTH);
+    }
+    
+    /**
+     * Creates a biased caller with the given error and bias
+     * @param error The error rate
+     * @param bias The bias - given as the probability of the allele coded 0
+     * @param tableDepth Calls for genotypes with up to this read depth are
+     * precomputed
+     */
+    public LogBiasedBinomialCaller(double error, double bias, int tableDepth)
     {
         this.error = error;
         this.bias = bias;
@@ -43,6 +55,8 @@ public class LogBiasedBinomialCaller extends Caller
         log1merror = Math.log1p(-error);
         logbias = Math.log(bias);
         log1mbias = Math.log(1.0-bias);
+        
+        tabulate(tableDepth);
     }
 
     /**
@@ -51,13 +65,15 @@ public class LogBiasedBinomialCaller extends Caller
      */
     public LogBiasedBinomialCaller(HierarchicalConfiguration<ImmutableNode> params)
     {
-        error = params.getInt("error");
-        bias = params.getInt("bias");
+        error = params.getDouble("error");
+        bias = params.getDouble("bias");
 
         logerror = Math.log(error);
         log1merror = Math.log1p(-error);
         logbias = Math.log(bias);
         log1mbias = Math.log(1.0-bias);
+        
+        tabulate(params.getInt("tabledepth",DEFAULT_TABLE_DEPTH));
     }
     
     /**
@@ -65,7 +81,7 @@ public class LogBiasedBinomialCaller extends Caller
      * @param d The reads
      * @return The called genotype
      */
-    public double[] callSingle(int[] d)
+    protected double[] calculate(int[] d)
     {
         if ((d[0] + d[1]) != 0)
         {
@@ -96,14 +112,73 @@ public class LogBiasedBinomialCaller extends Caller
         }
     }
 
+    /**
+     * Calculates the probabilities for a batch of genotypes.  The log
+     * likelihoods are found in simple loops over the flat arrays, which the
+     * JIT can compile to vector instructions, before the exponentials are
+     * taken and normalised.  The arithmetic is the same as calculate so the
+     * results are identical.  Used to build the table and for genotypes
+     * deeper than it.
+     * @param ref The reads for the allele coded 0 for each genotype
+     * @param alt The reads for the allele coded 1 for each genotype
+     * @param n The number of genotypes in the batch
+     * @param probs Array the probabilities are written to
+     */
+    @Override
+    protected void calculate(int[] ref, int[] alt, int n, double[] probs)
+    {
+        double[] ll0 = new double[n];
+        double[] ll1 = new double[n];
+        double[] ll2 = new double[n];
+        
+        for (int k = 0; k < n; k++)
+        {
+            ll0[k] = ref[k] * log1merror + alt[k] * logerror;
+        }
+        for (int k = 0; k < n; k++)
+        {
+            ll1[k] = ref[k] * logbias + alt[k] * log1mbias;
+        }
+        for (int k = 0; k < n; k++)
+        {
+            ll2[k] = ref[k] * logerror + alt[k] * log1merror;
+        }
+        
+        for (int k = 0; k < n; k++)
+        {
+            if ((ref[k] + alt[k]) != 0)
+            {
+                double maxll = Math.max(ll0[k],Math.max(ll1[k],ll2[k]));
+
+                double l0 = Math.exp(ll0[k] - maxll);
+                double l1 = Math.exp(ll1[k] - maxll);
+                double l2 = Math.exp(ll2[k] - maxll);
+
+                double totall = l0 + l1 + l2;
+
+                probs[3 * k] = l0 / totall;
+                probs[3 * k + 1] = l1 / totall;
+                probs[3 * k + 2] = l2 / totall;
+            }
+            else
+            {
+                probs[3 * k] = 1.0 / 3.0;
+                probs[3 * k + 1] = 1.0 / 3.0;
+                probs[3 * k + 2] = 1.0 / 3.0;
+            }
+        }
+    }
+
     public ImmutableNode getConfig()
     {
         ImmutableNode Ierror = new ImmutableNode.Builder().name("error").value(error).create();
         ImmutableNode Ibias = new ImmutableNode.Builder().name("bias").value(bias).create(); 
+        ImmutableNode Itable = new ImmutableNode.Builder().name("tabledepth").value(getTableDepth()).create(); 
         
         ImmutableNode config = new ImmutableNode.Builder().name("caller")
                 .addChild(Ierror)
                 .addChild(Ibias)
+                .addChild(Itable)
                 .addAttribute("name", "LogBiasedBinomial")
                 .create();
         
@@ -0,0 +1,249 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Callers;
+
+import java.util.Arrays;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * A binomial caller for any ploidy.  Genotypes are called as one of ploidy + 1
+ * alt allele dosages.  For a genotype with dosage g out of a ploidy of K each
+ * read is the alt allele with probability g/K if there were no errors, with
+ * reads flipped to the other allele at the error rate.
+ *
+ * The log probabilities of a ref and an alt read for each dosage are
+ * precomputed when the caller is created, so the log likelihood of a dosage
+ * is two multiplications and an addition, and all calls up to the table depth
+ * are precomputed as with other callers.  For a ploidy of two this gives
+ * exactly the same probabilities as LogBinomialCaller.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class PolyploidBinomialCaller extends Caller
+{
+
+    /**
+     * Creates the caller with the given error and ploidy
+     * @param error The error rate
+     * @param ploidy The ploidy
+     */
+    public PolyploidBinomialCaller(double error, int ploidy)
+    {
+        this(error,ploidy,DEFAULT_TABLE_DEPTH);
+    }
+
+    /**
+     * Creates the caller with the given error and ploidy
+     * @param error The error rate
+     * @param ploidy The ploidy
+     * @param tableDepth Calls for genotypes with up to this read depth are
+     * precomputed
+     */
+    public PolyploidBinomialCaller(double error, int ploidy, int tableDepth)
+    {
+        if ((ploidy < 1) || (ploidy > Byte.MAX_VALUE - 1))
+        {
+            throw new IllegalArgumentException("Ploidy must be between 1 and " + (Byte.MAX_VALUE - 1));
+        }
+
+        this.error = error;
+        this.ploidy = ploidy;
+
+        logref = new double[ploidy + 1];
+        logalt = new double[ploidy + 1];
+        for (int g = 0; g <= ploidy; g++)
+        {
+            if (g == 0)
+            {
+                logref[g] = Math.log1p(-error);
+                logalt[g] = Math.log(error);
+            }
+            else if (g == ploidy)
+            {
+                logref[g] = Math.log(error);
+                logalt[g] = Math.log1p(-error);
+            }
+            else if (2 * g == ploidy)
+            {
+                //Errors cancel out for the balanced dosage
+                logref[g] = Math.log(0.5);
+                logalt[g] = Math.log(0.5);
+            }
+            else
+            {
+                double alt = ((double) g * (1.0 - error) + (double) (ploidy - g) * error) / ploidy;
+                logref[g] = Math.log1p(-alt);
+                logalt[g] = Math.log(alt);
+            }
+        }
+
+        tabulate(tableDepth);
+    }
+
+    /**
+     * Creates the caller from the given configuration
+     * @param params The configuration
+     */
+    public PolyploidBinomialCaller(HierarchicalConfiguration<ImmutableNode> params)
+    {
+        this(params.getDouble("error"),params.getInt("ploidy"),params.getInt("tabledepth",DEFAULT_TABLE_DEPTH));
+    }
+
+    /**
+     * Calculates the probabilities for a single genotype
+     * @param d The reads
+     * @return The probability of each dosage
+     */
+    @Override
+    protected double[] calculate(int[] d)
+    {
+        int genotypes = ploidy + 1;
+        double[] probs = new double[genotypes];
+        if ((d[0] + d[1]) != 0)
+        {
+            double[] ll = new double[genotypes];
+            for (int g = 0; g < genotypes; g++)
+            {
+                ll[g] = d[0] * logref[g] + d[1] * logalt[g];
+            }
+
+            double maxll = ll[0];
+            for (int g = 1; g < genotypes; g++)
+            {
+                maxll = Math.max(maxll, ll[g]);
+            }
+
+            double totall = 0.0;
+            for (int g = 0; g < genotypes; g++)
+            {
+                probs[g] = Math.exp(ll[g] - maxll);
+                totall += probs[g];
+            }
+
+            for (int g = 0; g < genotypes; g++)
+            {
+                probs[g] = probs[g] / totall;
+            }
+        }
+        else
+        {
+            Arrays.fill(probs, 1.0 / genotypes);
+        }
+        return probs;
+    }
+
+    /**
+     * Calculates the probabilities for a batch of genotypes.  The log
+     * likelihood of each dosage is found in a simple loop over the flat
+     * arrays, which the JIT can compile to vector instructions, before the
+     * exponentials are taken and normalised.
+     * @param ref The reads for the allele coded 0 for each genotype
+     * @param alt The reads for the allele coded 1 for each genotype
+     * @param n The number of genotypes in the batch
+     * @param probs Array the probabilities are written to
+     */
+    @Override
+    protected void calculate(int[] ref, int[] alt, int n, double[] probs)
+    {
+        int genotypes = ploidy + 1;
+        //Log likelihoods for each dosage are stored together
+        double[] ll = new double[genotypes * n];
+
+        for (int g = 0; g < genotypes; g++)
+        {
+            double lr = logref[g];
+            double la = logalt[g];
+            int o = g * n;
+            for (int k = 0; k < n; k++)
+            {
+                ll[o + k] = ref[k] * lr + alt[k] * la;
+            }
+        }
+
+        for (int k = 0; k < n; k++)
+        {
+            int o = genotypes * k;
+            if ((ref[k] + alt[k]) != 0)
+            {
+                double maxll = ll[k];
+                for (int g = 1; g < genotypes; g++)
+                {
+                    maxll = Math.max(maxll, ll[g * n + k]);
+                }
+
+                double totall = 0.0;
+                for (int g = 0; g < genotypes; g++)
+                {
+                    double l = Math.exp(ll[g * n + k] - maxll);
+                    probs[o + g] = l;
+                    totall += l;
+                }
+
+                for (int g = 0; g < genotypes; g++)
+                {
+                    probs[o + g] = probs[o + g] / totall;
+                }
+            }
+            else
+            {
+                for (int g = 0; g < genotypes; g++)
+                {
+                    probs[o + g] = 1.0 / genotypes;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getPloidy()
+    {
+        return ploidy;
+    }
+
+    public ImmutableNode getConfig()
+    {
+        ImmutableNode Ierror = new ImmutableNode.Builder().name("error").value(error).create();
+        ImmutableNode Iploidy = new ImmutableNode.Builder().name("ploidy").value(ploidy).create();
+        ImmutableNode Itable = new ImmutableNode.Builder().name("tabledepth").value(getTableDepth()).create();
+
+        ImmutableNode config = new ImmutableNode.Builder().name("caller")
+                .addChild(Ierror)
+                .addChild(Iploidy)
+                .addChild(Itable)
+                .addAttribute("name", "PolyploidBinomial")
+                .create();
+
+        return config;
+    }
+
+    /***
+     * Get the eror rate used in the caller
+     * @return The error rate
+     */
+    public double getError()
+    {
+        return error;
+    }
+
+    private final double error;
+    private final int ploidy;
+
+    private final double[] logref;
+    private final double[] logalt;
+}
@@ -0,0 +1,44 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package Callers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * Provides the callers that come with LinkImputeR
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class StandardCallerProvider implements CallerProvider
+{
+
+    public Map<String,Function<HierarchicalConfiguration<ImmutableNode>,Caller>> getCallers()
+    {
+        Map<String,Function<HierarchicalConfiguration<ImmutableNode>,Caller>> callers = new LinkedHashMap<>();
+        callers.put("Binomial",BinomialCaller::new);
+        callers.put("BiasedBinomial",BiasedBinomialCaller::new);
+        callers.put("LogBinomial", LogBinomialCaller::new);
+        callers.put("LogBiasedBinomial", LogBiasedBinomialCaller::new);
+        callers.put("EMBinomial", EMBinomialCaller::new);
+        callers.put("PolyploidBinomial", PolyploidBinomialCaller::new);
+        return callers;
+    }
+}
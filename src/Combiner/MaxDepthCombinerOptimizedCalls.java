@@ -22,11 +22,7 @@ import Accuracy.AccuracyCalculator.AccuracyMethod;
 import Utils.Optimize.MultipleTest;
 import Utils.Optimize.SingleDoubleValue;
 import Utils.ProbToCall;
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import Utils.SingleGenotype.SingleGenotypeReads;
-import java.util.List;
+import Utils.SingleGenotype.GenotypeBatch;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
@@ -67,13 +63,11 @@ public class MaxDepthCombinerOptimizedCalls implements OptimizeCombiner<MaxDepth
         }
     }
     
-    public MaxDepthCombiner getOptimized(List<SingleGenotypeProbability> called,
-            List<SingleGenotypeProbability> imputed,
-            List<SingleGenotypeReads> reads,
-            List<SingleGenotypeCall> correct,
-            List<SingleGenotypeMasked> masked)
+    public MaxDepthCombiner getOptimized(GenotypeBatch called,
+            GenotypeBatch imputed,
+            GenotypeBatch correct)
     {
-        Opt sco = new Opt(called,imputed,reads,correct,masked,maxDepth,method);
+        Opt sco = new Opt(called,imputed,correct,maxDepth,method);
         
         MultipleTest mt = new MultipleTest(0.01);
         double w = mt.optimize(sco, 0.0, 1.0);
@@ -112,19 +106,15 @@ public class MaxDepthCombinerOptimizedCalls implements OptimizeCombiner<MaxDepth
     
     private class Opt implements SingleDoubleValue
     {
-        public Opt(List<SingleGenotypeProbability> called,
-                List<SingleGenotypeProbability> imputed,
-                List<SingleGenotypeReads> reads, 
-                List<SingleGenotypeCall> correct,
-                List<SingleGenotypeMasked> masked,
+        public Opt(GenotypeBatch called,
+                GenotypeBatch imputed,
+                GenotypeBatch correct,
                 int maxDepth,
                 AccuracyMethod method)
         {
             this.called = called;
             this.imputed = imputed;
-            this.reads = reads;
             this.correct = correct;
-            this.masked = masked;
             
             this.maxDepth = maxDepth;
             
@@ -136,12 +126,12 @@ public class MaxDepthCombinerOptimizedCalls implements OptimizeCombiner<MaxDepth
         public double value(double param)
         {
             MaxDepthCombiner combiner = new MaxDepthCombiner(param,maxDepth);
-            List<SingleGenotypeProbability> resultsProb = combiner.combine(called,imputed,reads);
-            List<SingleGenotypeCall> resultsCall = p2c.call(resultsProb);
+            GenotypeBatch resultsProb = combiner.combine(called,imputed);
+            GenotypeBatch resultsCall = p2c.call(resultsProb);
             switch (method)
             {
                 case CORRELATION:
-                    return AccuracyCalculator.correlation(correct,resultsCall,masked);
+                    return AccuracyCalculator.correlation(correct,resultsCall);
                 case CORRECT:
                 default:
                     return AccuracyCalculator.accuracy(correct,resultsCall);
@@ -151,10 +141,8 @@ public class MaxDepthCombinerOptimizedCalls implements OptimizeCombiner<MaxDepth
         private final AccuracyMethod method;
         private final int maxDepth;
         private final ProbToCall p2c;
-        private final List<SingleGenotypeMasked> masked;
-        private final List<SingleGenotypeCall> correct;
-        private final List<SingleGenotypeProbability> called;
-        private final List<SingleGenotypeProbability> imputed;
-        private final List<SingleGenotypeReads> reads;
+        private final GenotypeBatch correct;
+        private final GenotypeBatch called;
+        private final GenotypeBatch imputed;
     }
 }
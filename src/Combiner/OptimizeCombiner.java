@@ -17,11 +17,7 @@
 
 package Combiner;
 
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import Utils.SingleGenotype.SingleGenotypeReads;
-import java.util.List;
+import Utils.SingleGenotype.GenotypeBatch;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
 /**
@@ -35,18 +31,12 @@ public interface OptimizeCombiner<C extends Combiner>
 
     /**
      * Returns an optimized combiner for the given inputs
-     * @param called The called genotype probabilities
+     * @param called The called genotype probabilities of the masked genotypes
      * @param imputed The imputed genotype probabilities
-     * @param reads The read depths
      * @param correct The correct genotypes
-     * @param masked A list of masked genotypes
      * @return The optimized combiner
      */
-    C getOptimized(List<SingleGenotypeProbability> called,
-                   List<SingleGenotypeProbability> imputed,
-                   List<SingleGenotypeReads> reads,
-                   List<SingleGenotypeCall> correct,
-                   List<SingleGenotypeMasked> masked);
+    C getOptimized(GenotypeBatch called, GenotypeBatch imputed, GenotypeBatch correct);
     
     /**
      * Get the config for the optimizable combiner
@@ -19,7 +19,10 @@ package Executable;
 
 import Callers.*;
 import Exceptions.ProgrammerException;
+import Utils.ConfigKeys;
 import VCF.Filters.*;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
@@ -71,7 +74,9 @@ public class Available
     }
 
     /**
-     * Returns the caller for the given configuration
+     * Returns the caller for the given configuration.  Callers are immutable
+     * so the same caller is returned for equal configurations, meaning any
+     * tables and caches it holds are shared.
      * @param config The configuration
      * @return The caller
      */
@@ -79,7 +84,8 @@ public class Available
     {
         if (callers.has(config.getString("[@name]")))
         {
-            return callers.get(config.getString("[@name]"), config);
+            String key = ConfigKeys.key(config.getNodeModel().getNodeHandler().getRootNode());
+            return createdCallers.computeIfAbsent(key, k -> callers.get(config.getString("[@name]"), config));
         }
         
         //SHOULD PROBABLY THROW BETTER EXCEPTION!
@@ -87,6 +93,7 @@ public class Available
     }
     
     private static final ClassList<HierarchicalConfiguration<ImmutableNode>,Caller> callers = new ClassList<>();
+    private static final ConcurrentHashMap<String,Caller> createdCallers = new ConcurrentHashMap<>();
     private static final ClassList<HierarchicalConfiguration<ImmutableNode>,SampleFilter> sf = new ClassList<>();
     private static final ClassList<HierarchicalConfiguration<ImmutableNode>,PositionFilter> pf = new ClassList<>();
     
@@ -104,10 +111,16 @@ public class Available
         sf.add("SampleMissing",SampleMissing::new);
         sf.add("SampleMinCalled",SampleMinCalled::new);
         
-        // Callers
-        callers.add("Binomial",BinomialCaller::new);
-        callers.add("BiasedBinomial",BiasedBinomialCaller::new);
-        callers.add("LogBinomial", LogBinomialCaller::new);
-        callers.add("LogBiasedBinomial", LogBiasedBinomialCaller::new);
+        // Callers - the standard callers are always available (even if the
+        // service file isn't on the classpath) then any others found by
+        // ServiceLoader are added, possibly replacing standard ones
+        new StandardCallerProvider().getCallers().forEach(callers::add);
+        for (CallerProvider provider: ServiceLoader.load(CallerProvider.class))
+        {
+            if (!(provider instanceof StandardCallerProvider))
+            {
+                provider.getCallers().forEach(callers::add);
+            }
+        }
     }
 }
@@ -20,12 +20,11 @@ package Executable;
 import Callers.Caller;
 import Combiner.Combiner;
 import Imputers.Imputer;
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import Utils.SingleGenotype.SingleGenotypeReads;
+import Utils.GenotypeProbabilities;
+import Utils.SingleGenotype.GenotypeBatch;
 import VCF.Exceptions.VCFDataException;
 import VCF.Filters.VCFFilter;
+import VCF.PositionMeta;
 import VCF.VCF;
 import java.util.ArrayList;
 import java.util.List;
@@ -122,14 +121,14 @@ public class Case
      * an optimized version else return the imputer
      * @param original The called genotype probabilities
      * @param readCounts The read counts
-     * @param maskedprobs The masked genotype probabilities
-     * @param list List of masked positions
+     * @param positions The position of each snp
+     * @param maskedprobs The masked genotypes and their masked genotype
+     * probabilities
      * @return The imputer
      */
-    public Imputer getImputer(double[][][] original, int[][][] readCounts, List<SingleGenotypeProbability> maskedprobs,
-                              List<SingleGenotypeMasked> list)
+    public Imputer getImputer(GenotypeProbabilities original, int[][][] readCounts, PositionMeta[] positions, GenotypeBatch maskedprobs)
     {
-        return imputer.getImputer(original, readCounts, maskedprobs, list);
+        return imputer.getImputer(original, readCounts, positions, maskedprobs);
     }
     
     /**
@@ -145,20 +144,16 @@ public class Case
     /**
      * Get the combiner for this case.  If the case combiner is optimizable return
      * an optimized version else return the imputer
-     * @param called The called genotype probabilities
+     * @param called The called genotype probabilities of the masked genotypes
      * @param imputed The imputed genotype probabilities
-     * @param reads The read counts
      * @param correct The correct genotypes
-     * @param masked A list of masked genotypes
      * @return The combiner
      */
-    public Combiner getCombiner(List<SingleGenotypeProbability> called,
-            List<SingleGenotypeProbability> imputed,
-            List<SingleGenotypeReads> reads,
-            List<SingleGenotypeCall> correct,
-            List<SingleGenotypeMasked> masked)
+    public Combiner getCombiner(GenotypeBatch called,
+            GenotypeBatch imputed,
+            GenotypeBatch correct)
     {
-        return combiner.getCombiner(called, imputed, reads, correct, masked);
+        return combiner.getCombiner(called, imputed, correct);
     }
     
     /**
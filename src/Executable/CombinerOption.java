@@ -22,11 +22,7 @@ import Combiner.MaxDepthCombiner;
 import Combiner.MaxDepthCombinerOptimizedCalls;
 import Combiner.OptimizeCombiner;
 import Exceptions.ProgrammerException;
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import Utils.SingleGenotype.SingleGenotypeReads;
-import java.util.List;
+import Utils.SingleGenotype.GenotypeBatch;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
@@ -83,19 +79,15 @@ public class CombinerOption
      * Gets a combiner.  If the combiner option was for one that was not optimized
      * simply returns that.  Else optimizes a combiner and returns the optimized
      * version of it.
-     * @param called The called genotype probabilities
+     * @param called The called genotype probabilities of the masked genotypes
      * @param imputed The imputed genotype probabilities
-     * @param reads The reads
      * @param correct The correct genotypes
-     * @param masked A list of masked genotypes
      * @return A combiner
      */
     public Combiner getCombiner(
-            List<SingleGenotypeProbability> called,
-            List<SingleGenotypeProbability> imputed,
-            List<SingleGenotypeReads> reads,
-            List<SingleGenotypeCall> correct,
-            List<SingleGenotypeMasked> masked)
+            GenotypeBatch called,
+            GenotypeBatch imputed,
+            GenotypeBatch correct)
     {
         if (combiner != null)
         {
@@ -103,7 +95,7 @@ public class CombinerOption
         }
         else
         {
-            return opt.getOptimized(called, imputed, reads, correct, masked);
+            return opt.getOptimized(called, imputed, correct);
         }
     }
     
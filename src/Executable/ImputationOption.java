@@ -22,9 +22,9 @@ import Imputers.Imputer;
 import Imputers.KnniLDProb;
 import Imputers.KnniLDProbOptimizedCalls;
 import Imputers.OptimizeImputer;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import java.util.List;
+import Utils.GenotypeProbabilities;
+import Utils.SingleGenotype.GenotypeBatch;
+import VCF.PositionMeta;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
@@ -82,14 +82,14 @@ public class ImputationOption
      * version of it.
      * @param original The original called genotype probabilities
      * @param readCounts The readcounts
-     * @param maskedprobs The masked called genotype probabilities
-     * @param list A list of masked positions
+     * @param positions The position of each snp
+     * @param maskedprobs The masked genotypes and their masked called
+     * genotype probabilities
      * @return An imputer
      */
     public Imputer getImputer(
-            double[][][] original, int[][][] readCounts,
-            List<SingleGenotypeProbability> maskedprobs,
-            List<SingleGenotypeMasked> list)
+            GenotypeProbabilities original, int[][][] readCounts,
+            PositionMeta[] positions, GenotypeBatch maskedprobs)
     {
         if (imputer != null)
         {
@@ -97,7 +97,7 @@ public class ImputationOption
         }
         else
         {
-            return opt.getOptimized(original, readCounts, maskedprobs, list);
+            return opt.getOptimized(original, readCounts, positions, maskedprobs);
         }
     }
 
@@ -28,15 +28,18 @@ import Combiner.Combiner;
 import Combiner.MaxDepthCombinerOptimizedCalls;
 import Exceptions.*;
 import Imputers.Imputer;
+import Imputers.KnniLDProb;
 import Imputers.KnniLDProbOptimizedCalls;
+import Utils.Correlation.LDIndex;
+import Utils.Correlation.LDSearch;
+import Utils.Correlation.LDShards;
+import Utils.GenotypeProbabilities;
+import Utils.GenotypeProbabilities.Precision;
 import Utils.Log;
 import Utils.Log.Level;
+import Utils.Parallel;
 import Utils.ProbToCall;
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypePosition;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import Utils.SingleGenotype.SingleGenotypeReads;
+import Utils.SingleGenotype.GenotypeBatch;
 import VCF.ByteToGeno;
 import VCF.Exceptions.VCFException;
 import VCF.Exceptions.VCFInputException;
@@ -98,6 +101,9 @@ public class LinkImputeR
             all.addOption(Option.builder("s").build());
             all.addOption(Option.builder("v").build());
             all.addOption(Option.builder("h").build());
+            all.addOption(Option.builder("p").build());
+            all.addOption(Option.builder("l").build());
+            all.addOption(Option.builder("m").build());
             options.addOptionGroup(all);
 
             CommandLineParser parser = new DefaultParser();
@@ -140,6 +146,58 @@ public class LinkImputeR
                 done = true;
             }
 
+            if (commands.hasOption("p"))
+            {
+                if (fileNames.length == 3)
+                {
+                    ldprepare(readXML(new File(fileNames[0])), fileNames[1], new File(fileNames[2]));
+                }
+                else
+                {
+                    System.out.println("An input file, case name and job directory must be provided (in that order)");
+                    System.out.println();
+                    help();
+                }
+                done = true;
+            }
+
+            if (commands.hasOption("l"))
+            {
+                if ((fileNames.length == 3) && NumberUtils.isDigits(fileNames[1]) && NumberUtils.isDigits(fileNames[2]))
+                {
+                    long start = System.currentTimeMillis();
+                    Log.initialise(Level.DEBUG);
+                    Log.brief("Started shard " + fileNames[1] + " of " + fileNames[2]);
+                    LDShards.shard(new File(fileNames[0]), Integer.parseInt(fileNames[1]), Integer.parseInt(fileNames[2]));
+                    String time = DurationFormatUtils.formatDuration(System.currentTimeMillis() - start, "dd:HH:mm:ss");
+                    Log.brief("All done\t("+time+")");
+                }
+                else
+                {
+                    System.out.println("A job directory, shard and number of shards must be provided (in that order)");
+                    System.out.println();
+                    help();
+                }
+                done = true;
+            }
+
+            if (commands.hasOption("m"))
+            {
+                if (fileNames.length == 1)
+                {
+                    Log.initialise(Level.DEBUG);
+                    LDShards.merge(new File(fileNames[0]));
+                    Log.brief("All done");
+                }
+                else
+                {
+                    System.out.println("A job directory must be provided");
+                    System.out.println();
+                    help();
+                }
+                done = true;
+            }
+
             if (commands.hasOption("v"))
             {
                 System.out.println("LinkImputeR version 1.2.4");
@@ -156,22 +214,7 @@ public class LinkImputeR
             {
                 if (fileNames.length == 3)
                 {
-                    File xml = new File(fileNames[0]);
-
-                    FileBasedConfigurationBuilder<XMLConfiguration> builder =
-                            new FileBasedConfigurationBuilder<>(XMLConfiguration.class)
-                                    .configure(new Parameters().xml().setFile(xml));
-
-                    XMLConfiguration config;
-                    try
-                    {
-                        config = builder.getConfiguration();
-                    }
-                    catch (ConfigurationException ex)
-                    {
-                        throw new XMLException("There's a problem reading the xml file.  "
-                                + "Does it exist? Is it formatted correctly?",ex);
-                    }
+                    XMLConfiguration config = readXML(new File(fileNames[0]));
 
                     switch (config.getString("mode"))
                     {
@@ -247,6 +290,17 @@ public class LinkImputeR
             System.err.println("Technical details follow:");
             throw ex;
         }
+        catch (LDJobException ex)
+        {
+            System.err.println("=====");
+            System.err.println("ERROR");
+            System.err.println("=====");
+            System.err.println("There's a problem with the LD job");
+            System.err.println(ex.getMessage());
+            System.err.println();
+            System.err.println("Technical details follow:");
+            throw ex;
+        }
         catch (OutputException ex)
         {
             System.err.println("=====");
@@ -299,7 +353,7 @@ public class LinkImputeR
         }
     }
     
-    private static void impute(XMLConfiguration config, String casename, File output) throws VCFException, OutputException, InvalidCaseNameException
+    private static void impute(XMLConfiguration config, String casename, File output) throws VCFException, OutputException, XMLException, InvalidCaseNameException
     {
         if (casename == null)
         {
@@ -318,6 +372,15 @@ public class LinkImputeR
             {
                 long start = System.currentTimeMillis();
                 Log.initialise(Level.DEBUG);
+                if (!config.configurationsAt("parallel").isEmpty())
+                {
+                    Parallel.initialise(config.configurationAt("parallel"));
+                }
+                if (!config.configurationsAt("ldindex").isEmpty())
+                {
+                    LDIndex.initialise(config.configurationAt("ldindex"));
+                }
+                setPrecision(config);
                 Log.brief("Started " + casename);
                 Input input = new Input(config.configurationAt("input"));
                 VCF vcf = input.getVCF();
@@ -334,42 +397,43 @@ public class LinkImputeR
                 Log.debug("Got reads");
 
                 //CALL            
-                Caller caller = c.getCaller();
-                double[][][] calledProb = caller.call(readCounts);
+                Caller caller = c.getCaller().fit(readCounts);
+                GenotypeProbabilities calledProb = caller.call(readCounts);
                 Log.debug("Done calling");
 
                 //IMPUTE
                 ProbToCall p2c = new ProbToCall();
                 Imputer imputer = c.getImputer();            
-                double[][][] imputedProb = imputer.impute(calledProb, readCounts);
+                GenotypeProbabilities imputedProb = imputer.impute(calledProb, readCounts, vcf.getPositions());
                 Log.debug("Done imputing");
 
                 //COMBINE          
                 Combiner combiner = c.getCombiner();
-                double[][][] combinedProb = combiner.combine(calledProb, imputedProb, readCounts);
+                GenotypeProbabilities combinedProb = combiner.combine(calledProb, imputedProb, readCounts);
                 byte[][] combinedCalled = p2c.call(combinedProb);
                 Log.debug("Done combining");
                 
+                ByteToGeno b2g = new ByteToGeno(caller.getPloidy());
                 List<Position> newPositions = new ArrayList<>();
                 int i = 0;
                 PositionMeta[] old = vcf.getPositions();
                 for (PositionMeta pm: old)
                 {
                     Position oldp = vcf.singlePosition(pm);
-                    byte[] g = new byte[combinedProb.length];
-                    double[][] p = new double[combinedProb.length][];
+                    byte[] g = new byte[combinedProb.getSamples()];
+                    double[][] p = new double[combinedProb.getSamples()][];
                     for (int j = 0; j < g.length; j++)
                     {
                         g[j] = combinedCalled[j][i];
-                        p[j] = combinedProb[j][i];
+                        p[j] = combinedProb.getSingle(j,i);
                     }
-                    newPositions.add(makeNewPosition(oldp, g, p));
+                    newPositions.add(makeNewPosition(oldp, g, p, b2g));
                     i++;
                 }
 
                 List<String> newMeta = vcf.getMeta().getLinesList();
                 newMeta.add("##FORMAT=<ID=UG,Number=1,Type=String,Description=\"Unimputed Genotype\">");
-                newMeta.add("##FORMAT=<ID=IP,Number=3,Type=Float,Description=\"Imputation Probabilities (3 d.p.)\">");
+                newMeta.add("##FORMAT=<ID=IP,Number=" + caller.getGenotypes() + ",Type=Float,Description=\"Imputation Probabilities (3 d.p.)\">");
 
                 VCF newVCF = new VCF(new Meta(newMeta),newPositions);
                 try
@@ -391,13 +455,115 @@ public class LinkImputeR
         }
     }
     
-    private static void accuracy(XMLConfiguration config) throws VCFException, OutputException, AlgorithmException
+    private static void ldprepare(XMLConfiguration config, String casename, File job) throws VCFException, OutputException, XMLException, LDJobException, InvalidCaseNameException
+    {
+        File index = config.configurationsAt("ldindex").isEmpty() ? null :
+                new File(config.configurationAt("ldindex").getString("directory",""));
+        if ((index == null) || index.getPath().isEmpty())
+        {
+            throw new XMLException("An ldindex directory must be given for the merged LD index to be written to");
+        }
+
+        boolean invalidCase = true;
+        for (HierarchicalConfiguration<ImmutableNode> caseConfig: config.configurationsAt("case"))
+        {
+            Case c = new Case(caseConfig);
+            if (c.getName().equals(casename))
+            {
+                long start = System.currentTimeMillis();
+                Log.initialise(Level.DEBUG);
+                if (!config.configurationsAt("parallel").isEmpty())
+                {
+                    Parallel.initialise(config.configurationAt("parallel"));
+                }
+                setPrecision(config);
+                Log.brief("Started preparing LD job for " + casename);
+
+                Imputer imputer = c.getImputer();
+                if (!(imputer instanceof KnniLDProb))
+                {
+                    throw new XMLException("Case " + casename + " does not use LD-kNNi imputation");
+                }
+
+                Input input = new Input(config.configurationAt("input"));
+                VCF vcf = input.getVCF();
+                Log.debug("Data read in");
+
+                invalidCase = false;
+
+                //FILTER
+                c.applyFilters(vcf);
+                Log.debug("Filters applied");
+
+                //GET READS
+                int[][][] readCounts = vcf.asArrayTransposed("AD", new DepthMapper());
+                Log.debug("Got reads");
+
+                //CALL
+                Caller caller = c.getCaller().fit(readCounts);
+                GenotypeProbabilities calledProb = caller.call(readCounts);
+                Log.debug("Done calling");
+
+                //PREPARE
+                ((KnniLDProb) imputer).prepareLD(calledProb, readCounts, vcf.getPositions(), job, index);
+                String time = DurationFormatUtils.formatDuration(System.currentTimeMillis() - start, "dd:HH:mm:ss");
+                Log.brief("All done\t("+time+")");
+            }
+        }
+        if (invalidCase)
+        {
+            throw new InvalidCaseNameException(casename);
+        }
+    }
+
+    private static XMLConfiguration readXML(File xml) throws XMLException
+    {
+        FileBasedConfigurationBuilder<XMLConfiguration> builder =
+                new FileBasedConfigurationBuilder<>(XMLConfiguration.class)
+                        .configure(new Parameters().xml().setFile(xml));
+
+        try
+        {
+            return builder.getConfiguration();
+        }
+        catch (ConfigurationException ex)
+        {
+            throw new XMLException("There's a problem reading the xml file.  "
+                    + "Does it exist? Is it formatted correctly?",ex);
+        }
+    }
+    
+    private static void setPrecision(XMLConfiguration config) throws XMLException
+    {
+        try
+        {
+            GenotypeProbabilities.setPrecision(config.getString("precision","double"));
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new XMLException("precision must be either \"double\", \"float\", \"16bit\" or \"8bit\".", ex);
+        }
+    }
+    
+    private static void accuracy(XMLConfiguration config) throws VCFException, OutputException, AlgorithmException, XMLException
     {
         Log.initialise(config.configurationAt("log"));
+        if (!config.configurationsAt("parallel").isEmpty())
+        {
+            Parallel.initialise(config.configurationAt("parallel"));
+        }
+        if (!config.configurationsAt("ldindex").isEmpty())
+        {
+            LDIndex.initialise(config.configurationAt("ldindex"));
+        }
+        setPrecision(config);
         long start = System.currentTimeMillis();
         Log.brief("Started");
         List<ImmutableNode> outConfig = new ArrayList<>();
         outConfig.add(new ImmutableNode.Builder().name("mode").value("impute").create());
+        outConfig.add(Parallel.getConfig());
+        outConfig.add(LDIndex.getConfig());
+        outConfig.add(GenotypeProbabilities.getConfig(GenotypeProbabilities.getRunPrecision()));
 
         Input input = new Input(config.configurationAt("input"));
         VCF vcf = input.getVCF();
@@ -428,65 +594,60 @@ public class LinkImputeR
                 //GET READS
                 int[][][] readCounts = vcf.asArrayTransposed("AD", new DepthMapper());
 
-                Caller caller = c.getCaller();
+                Caller caller = c.getCaller().fit(readCounts);
                 Log.detail(c.getName() + ": Masking...");
                 //MASK
                 DepthMask mask = dmf.getDepthMask(readCounts,caller);
-                List<SingleGenotypeReads> maskedReads = getMaskedReads(mask.maskedList());
 
                 Log.detail(c.getName() + ": Calling...");
                 ProbToCall p2c = new ProbToCall();
                 //CALL
-                List<SingleGenotypeProbability> calledProb =
-                    caller.call(maskedReads);
+                GenotypeBatch calledProb = caller.call(mask.maskedBatch());
 
                 Log.detail(c.getName() + ": Imputing...");
                 //IMPUTE
-                double[][][] origProb = caller.call(readCounts);
-                Imputer imputer = c.getImputer(origProb,readCounts,calledProb,mask.maskedList());
+                GenotypeProbabilities origProb = caller.call(readCounts);
+                PositionMeta[] positions = vcf.getPositions();
+                Imputer imputer = c.getImputer(origProb,readCounts,positions,calledProb);
 
 
                 Log.detail(c.getName() + ": Combining...");
 
-                DepthMask validateMask = dmf.getDepthMask(readCounts,mask.maskedPositions(),caller);
-                List<SingleGenotypeReads> validateMaskedReads = getMaskedReads(validateMask.maskedList());
+                DepthMask validateMask = dmf.getDepthMask(readCounts,mask.maskedBatch(),caller);
 
-                List<SingleGenotypeProbability> validateCalledProb =
-                    caller.call(validateMaskedReads);
+                GenotypeBatch validateCalledProb = caller.call(validateMask.maskedBatch());
 
-                List<SingleGenotypeProbability> validateImputedProb =
-                    imputer.impute(origProb,readCounts,validateCalledProb,validateMask.maskedList());
+                GenotypeBatch validateImputedProb =
+                    imputer.impute(origProb,readCounts,positions,validateCalledProb);
 
 
                 //COMBINE
-                List<SingleGenotypeCall> validateCorrectCalls = p2c.call(caller.call(getOriginalReads(validateMask.maskedList())));
-                Combiner combiner = c.getCombiner(validateCalledProb, validateImputedProb, validateMaskedReads, validateCorrectCalls, validateMask.maskedList());
+                GenotypeBatch validateCorrectCalls = caller.callOriginal(validateMask.maskedBatch());
+                Combiner combiner = c.getCombiner(validateCalledProb, validateImputedProb, validateCorrectCalls);
 
                 Log.detail(c.getName() + ": Creating Stats...");
                 //STATS
 
-                List<SingleGenotypePosition> ignoredPositions = new ArrayList<>();
-                ignoredPositions.addAll(mask.maskedPositions());
-                ignoredPositions.addAll(validateMask.maskedPositions());
+                GenotypeBatch ignoredPositions = mask.maskedBatch().append(validateMask.maskedBatch());
                 DepthMask testMask = dmf.getDepthMask(readCounts,ignoredPositions,caller);
-                List<SingleGenotypeReads> testMaskedReads = getMaskedReads(testMask.maskedList());
 
-                List<SingleGenotypeProbability> testCalledProb =
-                    caller.call(testMaskedReads);
-                List<SingleGenotypeCall> testCalledGeno = p2c.call(testCalledProb);
+                GenotypeBatch testCalledProb = caller.call(testMask.maskedBatch());
+                GenotypeBatch testCalledGeno = p2c.call(testCalledProb);
 
-                List<SingleGenotypeProbability> testImputedProb =
-                    imputer.impute(origProb,readCounts,testCalledProb,testMask.maskedList());
-                List<SingleGenotypeCall> testImputedGeno = p2c.call(testImputedProb);
+                GenotypeBatch testImputedProb =
+                    imputer.impute(origProb,readCounts,positions,testCalledProb);
+                GenotypeBatch testImputedGeno = p2c.call(testImputedProb);
 
-                List<SingleGenotypeCall> testCorrectCalls = p2c.call(caller.call(getOriginalReads(testMask.maskedList())));
-                List<SingleGenotypeProbability> testCombinedProb = combiner.combine(testCalledProb, testImputedProb, testMaskedReads);
-                List<SingleGenotypeCall> testCombinedGeno = p2c.call(testCombinedProb);
+                GenotypeBatch testCorrectCalls = caller.callOriginal(testMask.maskedBatch());
+                GenotypeBatch testCombinedProb = combiner.combine(testCalledProb, testImputedProb);
+                GenotypeBatch testCombinedGeno = p2c.call(testCombinedProb);
 
-                AccuracyStats stats = AccuracyCalculator.accuracyStats(testCorrectCalls, testCombinedGeno, testMask.maskedList());
-                AccuracyStats cstats = AccuracyCalculator.accuracyStats(testCorrectCalls, testCalledGeno, testMask.maskedList());
-                AccuracyStats istats = AccuracyCalculator.accuracyStats(testCorrectCalls, testImputedGeno, testMask.maskedList());
-                c.getPrintStats().writeStats(stats, cstats, istats);
+                AccuracyStats stats = AccuracyCalculator.accuracyStats(testCorrectCalls, testCombinedGeno);
+                AccuracyStats cstats = AccuracyCalculator.accuracyStats(testCorrectCalls, testCalledGeno);
+                AccuracyStats istats = AccuracyCalculator.accuracyStats(testCorrectCalls, testImputedGeno);
+                double ldRecall = (imputer instanceof KnniLDProb) ?
+                        ((KnniLDProb) imputer).getLDSearch().getEstimatedRecall() : Double.NaN;
+                c.getPrintStats().writeStats(stats, cstats, istats, ldRecall);
                 writeSum(sum,c,vcf,stats,cstats,istats,partial);
                 writeTable(table,c,vcf,stats,cstats,istats,partial);
 
@@ -600,18 +761,46 @@ public class LinkImputeR
             throw new INIException("Parameter values for the mindepth option must be an integer.");
         }
 
+        int ploidy;
+        try
+        {
+            ploidy = config.getInt("Global.ploidy",2);
+        }
+        catch (ConversionException ex)
+        {
+            throw new INIException("Value for the ploidy option must be an integer.");
+        }
+        if ((ploidy < 1) || (ploidy > 126))
+        {
+            throw new INIException("Value for the ploidy option must be between 1 and 126.");
+        }
+
         String callerMethod = config.getString("Global.caller","logbinomial");
         Caller caller;
-        switch (callerMethod)
+        if (ploidy != 2)
         {
-            case "binomial":
-                caller = new BinomialCaller(error);
-                break;
-            case "logbinomial":
-                caller = new LogBinomialCaller(error);
-                break;
-            default:
-                throw new INIException("caller must be either \"binomial\" or \"logbinomial\".");
+            if (!callerMethod.equals("logbinomial"))
+            {
+                throw new INIException("caller must be \"logbinomial\" unless ploidy is 2.");
+            }
+            caller = new PolyploidBinomialCaller(error,ploidy,maxInDepth);
+        }
+        else
+        {
+            switch (callerMethod)
+            {
+                case "binomial":
+                    caller = new BinomialCaller(error,maxInDepth);
+                    break;
+                case "logbinomial":
+                    caller = new LogBinomialCaller(error,maxInDepth);
+                    break;
+                case "em":
+                    caller = new EMBinomialCaller(error,0.5,maxInDepth);
+                    break;
+                default:
+                    throw new INIException("caller must be either \"binomial\", \"logbinomial\" or \"em\".");
+            }
         }
         
         int numSnps = VCF.numberPositionsFromFile(input);
@@ -638,6 +827,10 @@ public class LinkImputeR
                         inputfilters.add(new MAFFilter(maf,minInDepth,maxInDepth,caller));
                         break;
                     case "exacthw":
+                        if (ploidy != 2)
+                        {
+                            throw new INIException("HW filters can only be used when ploidy is 2");
+                        }
                         try
                         {
                             sig = i.getDouble(null);
@@ -653,6 +846,10 @@ public class LinkImputeR
                         inputfilters.add(new ExactHWFilter(minInDepth,sig/numSnps,caller));
                         break;
                     case "oldhw":
+                        if (ploidy != 2)
+                        {
+                            throw new INIException("HW filters can only be used when ploidy is 2");
+                        }
                         try
                         {
                             sig = i.getDouble(null);
@@ -777,6 +974,33 @@ public class LinkImputeR
             default:
                 throw new INIException("accuractymethod must be either \"correlation\" or \"correct\".");
         }
+        
+        String ldmethod = config.getString("Global.ldmethod","pearson").toLowerCase();
+        switch (ldmethod)
+        {
+            case "pearson":
+                break;
+            case "em":
+            case "fastem":
+                if (ploidy != 2)
+                {
+                    throw new INIException("ldmethod must be \"pearson\" unless ploidy is 2.");
+                }
+                break;
+            default:
+                throw new INIException("ldmethod must be either \"pearson\", \"em\" or \"fastem\".");
+        }
+        
+        LDSearch ld;
+        try
+        {
+            ld = new LDSearch(config.getInt("Global.ldwindowbp",0),config.getInt("Global.ldwindowsnps",0),
+                    config.getDouble("Global.ldrecall",0.0),ldmethod);
+        }
+        catch (ConversionException ex)
+        {
+            throw new INIException("Values for the ldwindowbp and ldwindowsnps options must be integers and ldrecall a number.");
+        }
 
         String statsRoot = config.getString("Stats.root");
         boolean partial;
@@ -1025,7 +1249,7 @@ public class LinkImputeR
                 }
             }
             
-            ImputationOption imputer = new ImputationOption(new KnniLDProbOptimizedCalls(depth,am));
+            ImputationOption imputer = new ImputationOption(new KnniLDProbOptimizedCalls(depth,am,ld));
             CombinerOption combiner = new CombinerOption(new MaxDepthCombinerOptimizedCalls(depth,am));
 
             for (List<VCFFilter> filters: cases)
@@ -1114,6 +1338,31 @@ public class LinkImputeR
         }
 
         xml.add(Log.getConfig(level,log));
+        
+        int threads;
+        try
+        {
+            threads = config.getInt("Global.threads",0);
+        }
+        catch (ConversionException ex)
+        {
+            throw new INIException("Value for the threads option must be an integer.");
+        }
+        xml.add(Parallel.getConfig(threads,Parallel.getChunk()));
+        
+        String ldindex = config.getString("Global.ldindex",null);
+        xml.add(LDIndex.getConfig((ldindex != null) ? new File(ldindex) : null));
+        
+        Precision precision;
+        try
+        {
+            precision = Precision.fromName(config.getString("Global.precision","double"));
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new INIException("precision must be either \"double\", \"float\", \"16bit\" or \"8bit\".");
+        }
+        xml.add(GenotypeProbabilities.getConfig(precision));
        
         BasicConfigurationBuilder<ExtendedXMLConfiguration> xmlbuilder = 
             new BasicConfigurationBuilder<>(ExtendedXMLConfiguration.class)
@@ -1154,7 +1403,7 @@ public class LinkImputeR
         }
     }
     
-    private static Position makeNewPosition(Position original, byte[] newGeno, double[][] newProbs) throws VCFNoDataException
+    private static Position makeNewPosition(Position original, byte[] newGeno, double[][] newProbs, ByteToGeno b2g) throws VCFNoDataException
     {
         StringBuilder newFormat = new StringBuilder();
         for (String f: original.meta().getFormat())
@@ -1171,7 +1420,7 @@ public class LinkImputeR
         
         for (int i = 0; i < o.length; i++)
         {
-            genotypes.put(o[i].getSampleName(), makeNewGenotype(o[i],newGeno[i],newProbs[i]));
+            genotypes.put(o[i].getSampleName(), makeNewGenotype(o[i],newGeno[i],newProbs[i],b2g));
         }
         
         String[] pm = new String[9];
@@ -1194,22 +1443,26 @@ public class LinkImputeR
         return new Position(new PositionMeta(pm),genotypes);
     }
     
-    private static String makeNewGenotype(Genotype original, byte newGeno, double[] probs) throws VCFNoDataException
+    private static String makeNewGenotype(Genotype original, byte newGeno, double[] probs, ByteToGeno b2g) throws VCFNoDataException
     {
         //As we don't ever use the original genotype we should probably check it exists first!
         String oldGeno = original.getData("GT");
         Genotype temp = original.copy();
         temp.replaceData("GT", b2g.map(newGeno));
-        String newString = temp.getData() +
-                ":" +
-                oldGeno +
-                ":" +
-                dform.format(probs[0]) +
-                "," +
-                dform.format(probs[1]) +
-                "," +
-                dform.format(probs[2]);
-        return newString;
+        StringBuilder newString = new StringBuilder();
+        newString.append(temp.getData());
+        newString.append(":");
+        newString.append(oldGeno);
+        newString.append(":");
+        for (int k = 0; k < probs.length; k++)
+        {
+            if (k > 0)
+            {
+                newString.append(",");
+            }
+            newString.append(dform.format(probs[k]));
+        }
+        return newString.toString();
     }
     
     private static void writeSum(PrintWriter sum, Case c, VCF vcf, AccuracyStats stats, AccuracyStats cstats, AccuracyStats istats, boolean partial)
@@ -1328,28 +1581,6 @@ public class LinkImputeR
         sum.println();
     }
     
-    private static List<SingleGenotypeCall> getCorrectCalls(double[][][] called, List<? extends SingleGenotypePosition> list)
-    {
-        ProbToCall p2c = new ProbToCall();
-        return list.stream().map(sgp ->
-            new SingleGenotypeCall(sgp.getSample(),sgp.getSNP(),p2c.callSingle(called[sgp.getSample()][sgp.getSNP()])))
-            .collect(Collectors.toCollection(ArrayList::new));
-    }
-    
-    private static List<SingleGenotypeReads> getMaskedReads(List<SingleGenotypeMasked> masked)
-    {
-        return masked.stream().map(sgm -> 
-                new SingleGenotypeReads(sgm.getSample(), sgm.getSNP(), sgm.getMasked()))
-                .collect(Collectors.toCollection(ArrayList::new));
-    }
-    
-    private static List<SingleGenotypeReads> getOriginalReads(List<SingleGenotypeMasked> masked)
-    {
-        return masked.stream().map(sgm -> 
-                new SingleGenotypeReads(sgm.getSample(), sgm.getSNP(), sgm.getOriginal()))
-                .collect(Collectors.toCollection(ArrayList::new));
-    }
-    
     private static void help()
     {
         System.out.println("Using LinkImputer");
@@ -1385,6 +1616,20 @@ public class LinkImputeR
         System.out.println("\t\tcase is the name of the case to be used for imputation");
         System.out.println("\t\tvcffilename is the name of the vcf output file");
         System.out.println();
+        System.out.println("Sharded LD calculation (for large imputations)");
+        System.out.println("\tjava -jar LinkImputeR.jar -p xmlfilename case jobdirectory");
+        System.out.println("\tjava -jar LinkImputeR.jar -l jobdirectory shard shards");
+        System.out.println("\tjava -jar LinkImputeR.jar -m jobdirectory");
+        System.out.println();
+        System.out.println("\twhere:");
+        System.out.println("\t\txmlfilename is the name of the xml input file");
+        System.out.println("\t\tcase is the name of the case to be used for imputation");
+        System.out.println("\t\tjobdirectory is the directory the job is kept in");
+        System.out.println("\t\tshard is the shard to run, from 1 to shards");
+        System.out.println("\t\tshards is the number of shards");
+        System.out.println("\tThe job is prepared (-p), every shard is run (-l) and the");
+        System.out.println("\tshards merged (-m) before imputation is run as normal.");
+        System.out.println();
         System.out.println("Version information");
         System.out.println("\tjava -jar LinkImputeR.jar -v");
         System.out.println();
@@ -1394,5 +1639,4 @@ public class LinkImputeR
     
     private final static DecimalFormat dform = new DecimalFormat("0.000", new DecimalFormatSymbols(Locale.US));
     private final static DecimalFormat dforms = new DecimalFormat("0.0000");
-    private final static ByteToGeno b2g = new ByteToGeno();
 }
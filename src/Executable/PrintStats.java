@@ -25,9 +25,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.DecimalFormat;
-import java.util.List;
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypePosition;
+import Utils.SingleGenotype.GenotypeBatch;
 import VCF.PositionMeta;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
@@ -109,8 +107,23 @@ public class PrintStats
      * @throws OutputException If there is an IO problem
      */
     public void writeStats(AccuracyStats stats, AccuracyStats cstats, AccuracyStats istats) throws OutputException
+    {
+        writeStats(stats, cstats, istats, Double.NaN);
+    }
+    
+    /**
+     * Write stats to the appropriate files
+     * @param stats Accuracy stats for combined
+     * @param cstats Accuracy stats for called
+     * @param istats Accuracy stats for imputed
+     * @param ldRecall The estimated recall of an approximate LD search used
+     * when imputing (NaN if there wasn't one)
+     * @throws OutputException If there is an IO problem
+     */
+    public void writeStats(AccuracyStats stats, AccuracyStats cstats, AccuracyStats istats, double ldRecall) throws OutputException
     {
         int maxDepth = stats.getMaxDepth();
+        byte maxGeno = stats.getMaxGenotype();
         
         if (pretty != null)
         {
@@ -143,7 +156,7 @@ public class PrintStats
 
                 //BY GENOTYPE
                 prettyWriter.println("By genotype");
-                for (byte i = 0; i < 3; i++)
+                for (byte i = 0; i <= maxGeno; i++)
                 {
                     prettyWriter.print(i + "\t" + dformat(stats.genoAccuracy(i)) + "\t(" + iformat(stats.genoTotal(i)) + ")");
                     if (partial)
@@ -156,26 +169,35 @@ public class PrintStats
 
                 //BY DEPTH AND GENOTYPE
                 prettyWriter.println("By depth and genotype");
-                prettyWriter.println("\t0\t\t1\t\t2");
+                for (byte g = 0; g <= maxGeno; g++)
+                {
+                    prettyWriter.print("\t" + g + ((g < maxGeno) ? "\t" : ""));
+                }
+                prettyWriter.println();
                 for (int i = 0; i <= maxDepth; i++)
                 {
-                    prettyWriter.print(i + "\t" +
-                            dformat(stats.depthGenoAccuracy(i, (byte) 0)) + "\t" +
-                            dformat(stats.depthGenoAccuracy(i, (byte) 1)) + "\t" +
-                            dformat(stats.depthGenoAccuracy(i, (byte) 2)) + "\t(" +
-                            iformat(stats.depthGenoTotal(i, (byte) 0)) + "\t" +
-                            iformat(stats.depthGenoTotal(i, (byte) 1)) + "\t" +
-                            iformat(stats.depthGenoTotal(i, (byte) 2)) + ")");
+                    prettyWriter.print(i);
+                    for (byte g = 0; g <= maxGeno; g++)
+                    {
+                        prettyWriter.print("\t" + dformat(stats.depthGenoAccuracy(i, g)));
+                    }
+                    prettyWriter.print("\t(");
+                    for (byte g = 0; g <= maxGeno; g++)
+                    {
+                        prettyWriter.print(((g > 0) ? "\t" : "") + iformat(stats.depthGenoTotal(i, g)));
+                    }
+                    prettyWriter.print(")");
 
                     if (partial)
                     {
-                        prettyWriter.print("\t\t[" +
-                                dformat(cstats.depthGenoAccuracy(i, (byte) 0)) + "/" + 
-                                dformat(istats.depthGenoAccuracy(i, (byte) 0)) + "\t" +
-                                dformat(cstats.depthGenoAccuracy(i, (byte) 1)) + "/" + 
-                                dformat(istats.depthGenoAccuracy(i, (byte) 1)) + "\t" +
-                                dformat(cstats.depthGenoAccuracy(i, (byte) 2)) + "/" +
-                                dformat(istats.depthGenoAccuracy(i, (byte) 2)) + "]");
+                        prettyWriter.print("\t\t[");
+                        for (byte g = 0; g <= maxGeno; g++)
+                        {
+                            prettyWriter.print(((g > 0) ? "\t" : "") +
+                                    dformat(cstats.depthGenoAccuracy(i, g)) + "/" +
+                                    dformat(istats.depthGenoAccuracy(i, g)));
+                        }
+                        prettyWriter.print("]");
                     }
                     prettyWriter.println();
                 }
@@ -213,6 +235,15 @@ public class PrintStats
                 }
                 prettyWriter.println();
 
+                //LD SEARCH
+                if (!Double.isNaN(ldRecall))
+                {
+                    prettyWriter.println();
+                    prettyWriter.println();
+                    prettyWriter.println("Approximate LD search estimated recall: " + dformat(ldRecall));
+                    prettyWriter.println();
+                }
+
                 prettyWriter.close();
             }
             catch (IOException ex)
@@ -247,7 +278,7 @@ public class PrintStats
             {
                 PrintWriter genoWriter = new PrintWriter(new BufferedWriter(
                         new FileWriter(geno)));
-                for (byte i = 0; i < 3; i++)
+                for (byte i = 0; i <= maxGeno; i++)
                 {
                     genoWriter.println(i + "\t" + stats.genoAccuracy(i));
                 }
@@ -268,10 +299,12 @@ public class PrintStats
                         new FileWriter(depthGeno)));
                 for (int i = 0; i <= maxDepth; i++)
                 {
-                    depthGenoWriter.println(i + "\t" +
-                            stats.depthGenoAccuracy(i, (byte) 0) + "\t" +
-                            stats.depthGenoAccuracy(i, (byte) 1) + "\t" +
-                            stats.depthGenoAccuracy(i, (byte) 2));
+                    depthGenoWriter.print(i);
+                    for (byte g = 0; g <= maxGeno; g++)
+                    {
+                        depthGenoWriter.print("\t" + stats.depthGenoAccuracy(i, g));
+                    }
+                    depthGenoWriter.println();
                 }
                 depthGenoWriter.close();
             }
@@ -284,20 +317,20 @@ public class PrintStats
 
     /**
      * Writes data on each masked sample / snp if appropriate
-     * @param correct List of correct genotypes
-     * @param imputed List of imputed genotypes
+     * @param correct The correct genotypes
+     * @param imputed The imputed genotypes
      * @param samples List of samples (sample names)
      * @param positions List of positions (position meta data)
      * @throws OutputException If there is an IO problem
      */
-    public void writeEachMasked(List<SingleGenotypeCall> correct, List<SingleGenotypeCall>  imputed,
+    public void writeEachMasked(GenotypeBatch correct, GenotypeBatch imputed,
                                 String[] samples, PositionMeta[] positions) throws OutputException
     {
         if (eachMasked != null)
         {
             try
             {
-                if (!SingleGenotypePosition.samePositions(correct, imputed))
+                if (!correct.samePositions(imputed))
                 {
                     //SHOULD DO SOMETHING PROPER HERE
                     throw new RuntimeException();
@@ -308,11 +341,11 @@ public class PrintStats
                 eachMaskedWriter.println("Sample\tSNP\tTrue\tImputed");
                 for (int i = 0; i < correct.size(); i++)
                 {
-                    PositionMeta p = positions[correct.get(i).getSNP()];
-                    eachMaskedWriter.println(samples[correct.get(i).getSample()] + "\t" +
+                    PositionMeta p = positions[correct.getSNP(i)];
+                    eachMaskedWriter.println(samples[correct.getSample(i)] + "\t" +
                             p.getChrom() + ":" + p.getPosition() + "\t" +
-                            correct.get(i).getCall() + "\t" +
-                            imputed.get(i).getCall());
+                            correct.getCall(i) + "\t" +
+                            imputed.getCall(i));
                 }
                 eachMaskedWriter.close();
             }
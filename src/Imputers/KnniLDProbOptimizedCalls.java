@@ -20,22 +20,20 @@ package Imputers;
 import Accuracy.AccuracyCalculator;
 import Accuracy.AccuracyCalculator.AccuracyMethod;
 import Utils.Correlation.Correlation;
-import Utils.Correlation.Pearson;
+import Utils.Correlation.LDIndex;
+import Utils.Correlation.LDSearch;
+import Utils.GenotypeProbabilities;
 import Utils.Matrix;
 import Utils.Optimize.Descent;
 import Utils.Optimize.MultipleIntegerValue;
 import Utils.ProbToCall;
 import Utils.ProbToCallMinDepth;
-import Utils.SingleGenotype.SingleGenotypeCall;
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypePosition;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import java.util.ArrayList;
+import Utils.SingleGenotype.GenotypeBatch;
+import VCF.PositionMeta;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
@@ -55,9 +53,22 @@ public class KnniLDProbOptimizedCalls implements OptimizeImputer<KnniLDProb>
      * @param method The accuracy method to be used
      */
     public KnniLDProbOptimizedCalls(int knownDepth, AccuracyMethod method)
+    {
+        this(knownDepth,method,new LDSearch());
+    }
+    
+    /**
+     * Constructor
+     * @param knownDepth The read depth above which imputation is not performed
+     * and the called probabilities are used instead
+     * @param method The accuracy method to be used
+     * @param ld How the snps in highest LD with each snp are searched for
+     */
+    public KnniLDProbOptimizedCalls(int knownDepth, AccuracyMethod method, LDSearch ld)
     {
         this.knownDepth = knownDepth;
         this.method = method;
+        this.ld = ld;
     }
     
     /**
@@ -76,42 +87,38 @@ public class KnniLDProbOptimizedCalls implements OptimizeImputer<KnniLDProb>
                 method = AccuracyMethod.CORRELATION;
                 break;
         }
+        ld = params.configurationsAt("ld").isEmpty() ? new LDSearch() : new LDSearch(params.configurationAt("ld"));
     }
     
     
-    public KnniLDProb getOptimized(double[][][] callprobs, int[][][] readCounts, List<SingleGenotypeProbability> maskedprobs, List<SingleGenotypeMasked> list)
+    public KnniLDProb getOptimized(GenotypeProbabilities callprobs, int[][][] readCounts, GenotypeBatch maskedprobs)
+    {
+        return getOptimized(callprobs, readCounts, null, maskedprobs);
+    }
+    
+    @Override
+    public KnniLDProb getOptimized(GenotypeProbabilities callprobs, int[][][] readCounts, PositionMeta[] positions, GenotypeBatch maskedprobs)
     {
         ProbToCallMinDepth p2c = new ProbToCallMinDepth(knownDepth);
         
         byte[][] original = p2c.call(callprobs, readCounts);
         
-        Correlation corr = new Pearson();
+        Correlation corr = ld.getCorrelation();
         
-        Set<Integer> ldcalc = list.stream().map(SingleGenotypePosition::getSNP).collect(Collectors.toCollection(HashSet::new));
+        Set<Integer> ldcalc = IntStream.range(0, maskedprobs.size()).mapToObj(maskedprobs::getSNP).collect(Collectors.toCollection(HashSet::new));
         
         byte[][] transposed = Matrix.transpose(original);
         
-        Map<Integer,int[]> ld;
-        if (ldcalc.size() < (transposed.length / 2))
-        {
-            ld = corr.limitedtopn(transposed, 100, ldcalc);
-        }
-        else
-        {
-            ld = corr.topn(transposed, 100);
-        }
-        
-        List<SingleGenotypeCall> correct = list.stream().map(sgp ->
-                new SingleGenotypeCall(sgp.getSample(),sgp.getSNP(),original[sgp.getSample()][sgp.getSNP()]))
-            .collect(Collectors.toCollection(ArrayList::new));
+        int[][] sim = LDIndex.neighbours(ld, corr, transposed, 100, ldcalc, positions);
         
-        int[][] sim = new int[original[0].length][];
-        for (Map.Entry<Integer,int[]> e: ld.entrySet())
+        byte[] correctCalls = new byte[maskedprobs.size()];
+        for (int i = 0; i < correctCalls.length; i++)
         {
-            sim[e.getKey()] = e.getValue();
+            correctCalls[i] = original[maskedprobs.getSample(i)][maskedprobs.getSNP(i)];
         }
+        GenotypeBatch correct = maskedprobs.withCalls(correctCalls);
         
-        Opt opt = new Opt(original,sim,maskedprobs,list,correct,method);
+        Opt opt = new Opt(original,sim,maskedprobs,correct,method);
         
         int[] min = {1,1};
         int[] max = {original.length,100};
@@ -122,7 +129,7 @@ public class KnniLDProbOptimizedCalls implements OptimizeImputer<KnniLDProb>
         int k = best[0];
         int l = best[1];
 
-        return new KnniLDProb(k,l,knownDepth);
+        return new KnniLDProb(k,l,knownDepth,ld);
     }
     
     public ImmutableNode getConfig()
@@ -142,30 +149,32 @@ public class KnniLDProbOptimizedCalls implements OptimizeImputer<KnniLDProb>
         
         ImmutableNode Imethod = new ImmutableNode.Builder().name("method").value(m).create();
         
-        ImmutableNode config = new ImmutableNode.Builder().name("imputation")
+        ImmutableNode.Builder config = new ImmutableNode.Builder().name("imputation")
                 .addAttribute("name", "KnniLDOpt")
                 .addChild(Iknowndepth)
-                .addChild(Imethod)
-                .create();
+                .addChild(Imethod);
+        if (!ld.isDefault())
+        {
+            config.addChild(ld.getConfig());
+        }
         
-        return config;
+        return config.create();
     }
     
+    private final LDSearch ld;
     private AccuracyMethod method;
     private final int knownDepth;
     
     private class Opt implements MultipleIntegerValue
     {
         public Opt(byte[][] original, int[][] sim,
-                List<SingleGenotypeProbability> maskedprobs,
-                List<SingleGenotypeMasked> list,
-                List<SingleGenotypeCall> correct,
+                GenotypeBatch maskedprobs,
+                GenotypeBatch correct,
                 AccuracyMethod method)
         {
             this.original = original;
             this.sim = sim;
             this.maskedprobs = maskedprobs;
-            this.list = list;
             this.correct = correct;
             this.p2c = new ProbToCall();
         }
@@ -173,12 +182,12 @@ public class KnniLDProbOptimizedCalls implements OptimizeImputer<KnniLDProb>
         public double value(int[] params)
         {
             KnniLDProb knni = new KnniLDProb(params[0],params[1],knownDepth);
-            List<SingleGenotypeProbability> resultsProb = knni.impute(original,maskedprobs,list,sim);
-            List<SingleGenotypeCall> resultsCall = p2c.call(resultsProb);
+            GenotypeBatch resultsProb = knni.impute(original,maskedprobs,sim);
+            GenotypeBatch resultsCall = p2c.call(resultsProb);
             switch (method)
             {
                 case CORRELATION:
-                    return AccuracyCalculator.correlation(correct,resultsCall,list);
+                    return AccuracyCalculator.correlation(correct,resultsCall);
                 case CORRECT:
                 default:
                     return AccuracyCalculator.accuracy(correct,resultsCall);
@@ -188,8 +197,7 @@ public class KnniLDProbOptimizedCalls implements OptimizeImputer<KnniLDProb>
         private final byte[][] original;
         private final int[][] sim;
         private final ProbToCall p2c;
-        private final List<SingleGenotypeProbability> maskedprobs;
-        private final List<SingleGenotypeMasked> list;
-        private final List<SingleGenotypeCall> correct;
+        private final GenotypeBatch maskedprobs;
+        private final GenotypeBatch correct;
     }
 }
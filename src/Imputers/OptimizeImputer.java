@@ -17,9 +17,9 @@
 
 package Imputers;
 
-import Utils.SingleGenotype.SingleGenotypeMasked;
-import Utils.SingleGenotype.SingleGenotypeProbability;
-import java.util.List;
+import Utils.GenotypeProbabilities;
+import Utils.SingleGenotype.GenotypeBatch;
+import VCF.PositionMeta;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
 /**
@@ -34,11 +34,27 @@ public interface OptimizeImputer<I extends Imputer>
      * Get an optimized version of the imputer
      * @param callprobs Original called genotype probabilities
      * @param readCounts Read counts
-     * @param maskedprob Masked genotype probabilities
-     * @param list List of masked sites and their genotype
+     * @param maskedprob Masked genotypes with their masked genotype
+     * probabilities
      * @return An optimized imputer
      */
-    I getOptimized(double[][][] callprobs, int[][][] readCounts, List<SingleGenotypeProbability> maskedprob, List<SingleGenotypeMasked> list);
+    I getOptimized(GenotypeProbabilities callprobs, int[][][] readCounts, GenotypeBatch maskedprob);
+    
+    /**
+     * Get an optimized version of the imputer where the position of each snp
+     * is known, for imputers that make use of snp positions.  By default
+     * positions are ignored.
+     * @param callprobs Original called genotype probabilities
+     * @param readCounts Read counts
+     * @param positions The position of each snp
+     * @param maskedprob Masked genotypes with their masked genotype
+     * probabilities
+     * @return An optimized imputer
+     */
+    default I getOptimized(GenotypeProbabilities callprobs, int[][][] readCounts, PositionMeta[] positions, GenotypeBatch maskedprob)
+    {
+        return getOptimized(callprobs, readCounts, maskedprob);
+    }
 
  
     /**
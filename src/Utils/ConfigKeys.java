@@ -0,0 +1,60 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils;
+
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * Converts configs into strings that can be used as keys, for example when
+ * caching objects created from a config.  Equal configs give equal strings.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class ConfigKeys
+{
+    private ConfigKeys()
+    {
+    }
+
+    /**
+     * Converts a config into a key
+     * @param config The config
+     * @return The key
+     */
+    public static String key(ImmutableNode config)
+    {
+        StringBuilder sb = new StringBuilder();
+        append(sb, config);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, ImmutableNode config)
+    {
+        sb.append(config.getNodeName());
+        sb.append(config.getAttributes());
+        sb.append("=");
+        sb.append(config.getValue());
+        sb.append("(");
+        for (ImmutableNode child: config.getChildren())
+        {
+            append(sb, child);
+            sb.append(",");
+        }
+        sb.append(")");
+    }
+}
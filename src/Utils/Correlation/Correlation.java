@@ -1,222 +1,525 @@
-/*
- * This file is part of LinkImputeR.
- * 
- * LinkImputeR is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * LinkImputeR is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package Utils.Correlation;
-
-import Utils.Progress.Progress;
-import Utils.Progress.ProgressFactory;
-import Utils.TopQueue;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.stream.IntStream;
-
-/**
- * Calculates correlations.  Mainly has utility functions that use functions of
- * implementing classes to calculate multiple correlations.
- * @author daniel
- */
-public abstract class Correlation
-{
-    
-    /**
-     * Calculates correlations between all pairs of arrays
-     * @param data The data
-     * @return A symmetric array of correlations
-     */
-    public double[][] calculate(byte[][] data)
-    {
-        Progress progress = ProgressFactory.get(data.length * (data.length - 1) / 2);
-        double[][] result = new double[data.length][data.length];
-        IntStream.range(0, data.length).forEach(i ->
-            {
-            IntStream.range(i+1,data.length).parallel().forEach(j ->
-                {
-                    double c = calculate(data[i],data[j]);
-                    result[i][j] = c;
-                    result[j][i] = c;
-                });
-            progress.done(data.length - i - 1);        
-            });
-        return result;
-    }
-    
-    /**
-     * Returns the position of the most correlated arrays for every array.  The
-     * n most correlated arrays are returned
-     * @param data The data
-     * @param n Return this number of top correlated arrays
-     * @return Map from the position of an array to the position of the n arrays
-     * most correlated with it
-     */
-    public Map<Integer, int[]> topn(byte[][] data, int n)
-    {
-        Progress progress = ProgressFactory.get(data.length * (data.length - 1) / 2);
-
-        Map<Integer,TopQueue> tq = new HashMap<>();
-        
-        for (int i = 0; i < data.length; i++)
-        {
-            tq.put(i,new TopQueue(n));
-        }
-        
-        IntStream.range(0, data.length).forEach(i ->
-            {
-            IntStream.range(i+1,data.length).parallel().forEach(j ->
-                {
-                    double c = calculate(data[i],data[j]);
-                    tq.get(i).add(j, c);
-                    tq.get(j).add(i, c);
-                });
-            progress.done(data.length - i - 1); 
-            });
-        
-        Map<Integer,int[]> result = new HashMap<>();
-        for (Entry<Integer,TopQueue> e: tq.entrySet())
-        {
-            result.put(e.getKey(),e.getValue().getList());
-        }
-        return result;
-    }
-    
-    /**
-     * Similar to topn except it returns the correlations rather than the
-     * positions
-     * @param data The data
-     * @param n Return this number of top correlated arrays
-     * @return Map from the position of an array to the correlation of the n arrays
-     * most correlated with it
-     */
-    public Map<Integer, double[]> topnvalues(byte[][] data, int n)
-    {
-        Progress progress = ProgressFactory.get(data.length * (data.length - 1) / 2);
-        
-        //Map<Integer,TopQueue<Integer,Double>> tq = new HashMap<>();
-        Map<Integer,TopQueue> tq = new HashMap<>();
-        
-        for (int i = 0; i < data.length; i++)
-        {
-            //tq.put(i,new TopQueue<>(n,true));
-            tq.put(i,new TopQueue(n));
-        }
-        
-        IntStream.range(0, data.length).forEach(i ->
-            {
-            IntStream.range(i+1,data.length).parallel().forEach(j ->
-                {
-                    double c = calculate(data[i],data[j]);
-                    tq.get(i).add(j, c);
-                    tq.get(j).add(i, c);
-                });
-            progress.done(data.length - i - 1); 
-            });
-        
-        Map<Integer,double[]> result = new HashMap<>();
-        for (Entry<Integer,TopQueue> e: tq.entrySet())
-        {
-            result.put(e.getKey(),e.getValue().getValueList());
-        }
-        return result;
-    }
-    
-    /**
-     * Similar to topn except it only considers the given arrays
-     * @param data The data
-     * @param n Return this number of top correlated arrays
-     * @param list The position of the arrays to consider
-     * @return Map from the position of an array to the position of the n arrays
-     * in the list most correlated with it
-     */
-    public Map<Integer, int[]> limitedtopn(byte[][] data, int n, Set<Integer> list)
-    {
-        Progress progress = ProgressFactory.get(list.size());
-        
-        Map<Integer,TopQueue> tq = new HashMap<>();
-        
-        for (Integer i: list)
-        {
-            tq.put(i,new TopQueue(n));
-        }
-        
-        list.forEach(i ->
-            {
-            IntStream.range(0,data.length).parallel().filter(j -> (i != j)).forEach(j ->
-                {
-                    double c = calculate(data[i],data[j]);
-                    tq.get(i).add(j, c);
-                });
-            progress.done(); 
-            });
-        
-        Map<Integer,int[]> result = new HashMap<>();
-        for (Entry<Integer,TopQueue> e: tq.entrySet())
-        {
-            result.put(e.getKey(),e.getValue().getList());
-        }
-        return result;
-    }
-    
-    /**
-     * Similar to limitedtopn except it returns correlations
-     * @param data The data
-     * @param n Return this number of top correlated arrays
-     * @param list The position of the arrays to consider
-     * @return Map from the position of an array to the correlation of the n arrays
-     * in the list most correlated with it
-     */
-    public Map<Integer, double[]> limitedtopnvalues(byte[][] data, int n, Set<Integer> list)
-    {
-        Progress progress = ProgressFactory.get(list.size());
-        
-        //Map<Integer,TopQueue<Integer,Double>> tq = new HashMap<>();
-        Map<Integer,TopQueue> tq = new HashMap<>();
-        
-        for (Integer i: list)
-        {
-            //tq.put(i,new TopQueue<>(n,true));
-            tq.put(i,new TopQueue(n));
-        }
-        
-        list.forEach(i ->
-            {
-            IntStream.range(0,data.length).parallel().filter(j -> (i != j)).forEach(j ->
-                {
-                    double c = calculate(data[i],data[j]);
-                    tq.get(i).add(j, c);
-                });
-            progress.done(); 
-            });
-        
-        //Map<Integer,List<Integer>> result = new HashMap<>();
-        Map<Integer,double[]> result = new HashMap<>();
-        //for (Entry<Integer,TopQueue<Integer,Double>> e: tq.entrySet())
-        for (Entry<Integer,TopQueue> e: tq.entrySet())
-        {
-            result.put(e.getKey(),e.getValue().getValueList());
-        }
-        return result;
-    }
-    
-    /**
-     * Calculates the correlation between two arrays
-     * @param d1 The first array
-     * @param d2 The second array
-     * @return The correlation
-     */
-    public abstract double calculate(byte[] d1, byte[] d2);
-}
+/*
+ * This file is part of LinkImputeR.
+ * 
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+import Utils.Parallel;
+import Utils.Progress.Progress;
+import Utils.Progress.ProgressFactory;
+import Utils.TopHeaps;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Calculates correlations.  Mainly has utility functions that use functions of
+ * implementing classes to calculate multiple correlations.
+ * @author daniel
+ */
+public abstract class Correlation
+{
+    
+    /**
+     * Calculates correlations between all pairs of arrays
+     * @param data The data
+     * @return A symmetric array of correlations
+     */
+    public double[][] calculate(byte[][] data)
+    {
+        Prepared prepared = prepare(data);
+        Tiles tiles = new Tiles(data.length);
+        Progress progress = ProgressFactory.get(tiles.count());
+        double[][] result = new double[data.length][data.length];
+        Parallel.forEach(tiles.count(), t ->
+            {
+            int bi = tiles.row(t);
+            int bj = tiles.column(t, bi);
+            for (int i = tiles.start(bi); i < tiles.end(bi); i++)
+            {
+                for (int j = Math.max(tiles.start(bj), i + 1); j < tiles.end(bj); j++)
+                {
+                    double c = prepared.calculate(i,j);
+                    result[i][j] = c;
+                    result[j][i] = c;
+                }
+            }
+            progress.done();
+            });
+        return result;
+    }
+    
+    /**
+     * Returns the position of the most correlated arrays for every array.  The
+     * n most correlated arrays are returned
+     * @param data The data
+     * @param n Return this number of top correlated arrays
+     * @return Map from the position of an array to the position of the n arrays
+     * most correlated with it
+     */
+    public Map<Integer, int[]> topn(byte[][] data, int n)
+    {
+        TopHeaps tq = tiledtopheaps(data, n);
+        
+        Map<Integer,int[]> result = new HashMap<>();
+        for (int i = 0; i < data.length; i++)
+        {
+            result.put(i,tq.getList(i));
+        }
+        return result;
+    }
+    
+    /**
+     * Similar to topn except it returns the correlations rather than the
+     * positions
+     * @param data The data
+     * @param n Return this number of top correlated arrays
+     * @return Map from the position of an array to the correlation of the n arrays
+     * most correlated with it
+     */
+    public Map<Integer, double[]> topnvalues(byte[][] data, int n)
+    {
+        TopHeaps tq = tiledtopheaps(data, n);
+        
+        Map<Integer,double[]> result = new HashMap<>();
+        for (int i = 0; i < data.length; i++)
+        {
+            result.put(i,tq.getValueList(i));
+        }
+        return result;
+    }
+    
+    /**
+     * Similar to topn except the arrays are read from a file a block at a
+     * time rather than all being held in memory, and the work can be split
+     * into shards run by different processes.  Pairs of blocks are processed
+     * in turn: each block is read once and, in parallel, compared with each
+     * later block, so at most one block per thread plus one are held in
+     * memory at once, along with the top correlated arrays for every array.
+     * The pairs of blocks are numbered in the order they would be processed
+     * and shard s of N processes those pairs whose number modulo N is s.  The
+     * top correlated arrays found by each shard are returned with their
+     * correlations so the shards can be merged by adding every shard's
+     * entries for an array to one TopHeaps, which gives the same result as
+     * topn.  A single shard (s = 0, N = 1) does all the work.
+     * @param file The file
+     * @param n Keep this number of top correlated arrays
+     * @param block The number of arrays in a block
+     * @param shard The shard to process, from zero
+     * @param shards The number of shards
+     * @return The top correlated arrays found by this shard for each array
+     * @throws IOException If there is a problem reading the file
+     */
+    public TopHeaps topheaps(GenotypeFile file, int n, int block, int shard, int shards) throws IOException
+    {
+        return streamedtopheaps(file, n, block, shard, shards);
+    }
+    
+    /**
+     * Similar to topn except it only considers the given arrays
+     * @param data The data
+     * @param n Return this number of top correlated arrays
+     * @param list The position of the arrays to consider
+     * @return Map from the position of an array to the position of the n arrays
+     * in the list most correlated with it
+     */
+    public Map<Integer, int[]> limitedtopn(byte[][] data, int n, Set<Integer> list)
+    {
+        int[] targets = list.stream().mapToInt(i -> i).toArray();
+        TopHeaps tq = candidatetopheaps(data, n, targets, i -> null);
+        
+        Map<Integer,int[]> result = new HashMap<>();
+        for (int t = 0; t < targets.length; t++)
+        {
+            result.put(targets[t],tq.getList(t));
+        }
+        return result;
+    }
+    
+    /**
+     * Similar to limitedtopn except it returns correlations
+     * @param data The data
+     * @param n Return this number of top correlated arrays
+     * @param list The position of the arrays to consider
+     * @return Map from the position of an array to the correlation of the n arrays
+     * in the list most correlated with it
+     */
+    public Map<Integer, double[]> limitedtopnvalues(byte[][] data, int n, Set<Integer> list)
+    {
+        int[] targets = list.stream().mapToInt(i -> i).toArray();
+        TopHeaps tq = candidatetopheaps(data, n, targets, i -> null);
+        
+        Map<Integer,double[]> result = new HashMap<>();
+        for (int t = 0; t < targets.length; t++)
+        {
+            result.put(targets[t],tq.getValueList(t));
+        }
+        return result;
+    }
+    
+    /**
+     * Similar to limitedtopn except each array in the list is only compared
+     * with its candidate arrays, e.g. those nearby in the genome.
+     * @param data The data
+     * @param n Return this number of top correlated arrays
+     * @param list The position of the arrays to consider
+     * @param candidates Gives the positions of the candidate arrays for the
+     * array at a position, or null if it should be compared with all arrays.
+     * Any candidate equal to the array's own position is ignored.
+     * @return Map from the position of an array to the position of the n
+     * candidate arrays most correlated with it (fewer if there are not n
+     * candidates)
+     */
+    public Map<Integer, int[]> candidatetopn(byte[][] data, int n, Set<Integer> list, IntFunction<int[]> candidates)
+    {
+        int[] targets = list.stream().mapToInt(i -> i).toArray();
+        TopHeaps tq = candidatetopheaps(data, n, targets, candidates);
+        
+        Map<Integer,int[]> result = new HashMap<>();
+        for (int t = 0; t < targets.length; t++)
+        {
+            result.put(targets[t],tq.getList(t,tq.size(t)));
+        }
+        return result;
+    }
+    
+    //Every pair is calculated once by splitting the upper triangle of the
+    //pairs into square tiles which are spread across the pool.  The two blocks
+    //of arrays in a tile are small enough to stay in cache while all pairs
+    //between them are calculated.  A tile's correlations are buffered and
+    //then merged into the heaps for each block under a single lock, rather
+    //than one lock per pair, so the pair loop itself has no locking or
+    //allocation.
+    private TopHeaps tiledtopheaps(byte[][] data, int n)
+    {
+        Prepared prepared = prepare(data);
+        Tiles tiles = new Tiles(data.length);
+        Progress progress = ProgressFactory.get(tiles.count());
+        
+        TopHeaps tq = new TopHeaps(data.length, n);
+        Object[] locks = new Object[tiles.blocks()];
+        for (int b = 0; b < locks.length; b++)
+        {
+            locks[b] = new Object();
+        }
+        int width = tiles.width();
+        ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[width * width]);
+        
+        Parallel.forEach(tiles.count(), t ->
+            {
+            int bi = tiles.row(t);
+            int bj = tiles.column(t, bi);
+            int i0 = tiles.start(bi);
+            int i1 = tiles.end(bi);
+            int j0 = tiles.start(bj);
+            int j1 = tiles.end(bj);
+            double[] c = buffers.get();
+            
+            for (int i = i0; i < i1; i++)
+            {
+                int o = (i - i0) * width - j0;
+                for (int j = Math.max(j0, i + 1); j < j1; j++)
+                {
+                    c[o + j] = prepared.calculate(i,j);
+                }
+            }
+            
+            synchronized (locks[bi])
+            {
+                for (int i = i0; i < i1; i++)
+                {
+                    int o = (i - i0) * width - j0;
+                    for (int j = Math.max(j0, i + 1); j < j1; j++)
+                    {
+                        tq.add(i, j, c[o + j]);
+                    }
+                }
+            }
+            synchronized (locks[bj])
+            {
+                for (int j = j0; j < j1; j++)
+                {
+                    for (int i = i0; i < Math.min(i1, j); i++)
+                    {
+                        tq.add(j, i, c[(i - i0) * width + j - j0]);
+                    }
+                }
+            }
+            progress.done();
+            });
+        
+        return tq;
+    }
+    
+    private TopHeaps streamedtopheaps(GenotypeFile file, int n, int block, int shard, int shards) throws IOException
+    {
+        int snps = file.getSNPs();
+        int blocks = (snps + block - 1) / block;
+        long pairs = (long) blocks * (blocks + 1) / 2;
+        Progress progress = ProgressFactory.get((pairs - shard + shards - 1) / shards);
+        
+        TopHeaps tq = new TopHeaps(snps, n);
+        //One lock per tile's worth of arrays to keep contention low
+        Object[] locks = new Object[(snps + TILE - 1) / TILE];
+        for (int l = 0; l < locks.length; l++)
+        {
+            locks[l] = new Object();
+        }
+        
+        for (int bi = 0; bi < blocks; bi++)
+        {
+            int first = bi;
+            //The later blocks this block is paired with in this shard, where
+            //the pair of this block with itself is numbered p
+            long p = (long) bi * blocks - (long) bi * (bi - 1) / 2;
+            int[] later = IntStream.range(bi, blocks).filter(bj -> (p + bj - first) % shards == shard).toArray();
+            if (later.length == 0)
+            {
+                continue;
+            }
+            int i0 = bi * block;
+            int i1 = Math.min(snps, i0 + block);
+            byte[][] rows = file.read(i0, i1);
+            Parallel.forEach(later.length, k ->
+                {
+                int bj = later[k];
+                int j0 = bj * block;
+                int j1 = Math.min(snps, j0 + block);
+                //Arrays from the second block follow those from the first
+                byte[][] both;
+                int offset;
+                if (bj == first)
+                {
+                    both = rows;
+                    offset = 0;
+                }
+                else
+                {
+                    both = Arrays.copyOf(rows, rows.length + j1 - j0);
+                    System.arraycopy(file.read(j0, j1), 0, both, rows.length, j1 - j0);
+                    offset = rows.length;
+                }
+                Prepared prepared = prepare(both);
+                
+                double[] c = new double[TILE * TILE];
+                for (int ti = i0; ti < i1; ti += TILE)
+                {
+                    int ti1 = Math.min(i1, ti + TILE);
+                    for (int tj = j0; tj < j1; tj += TILE)
+                    {
+                        int tj1 = Math.min(j1, tj + TILE);
+                        for (int i = ti; i < ti1; i++)
+                        {
+                            int o = (i - ti) * TILE - tj;
+                            for (int j = Math.max(tj, i + 1); j < tj1; j++)
+                            {
+                                c[o + j] = prepared.calculate(i - i0, offset + j - j0);
+                            }
+                        }
+                        
+                        synchronized (locks[ti / TILE])
+                        {
+                            for (int i = ti; i < ti1; i++)
+                            {
+                                int o = (i - ti) * TILE - tj;
+                                for (int j = Math.max(tj, i + 1); j < tj1; j++)
+                                {
+                                    tq.add(i, j, c[o + j]);
+                                }
+                            }
+                        }
+                        synchronized (locks[tj / TILE])
+                        {
+                            for (int j = tj; j < tj1; j++)
+                            {
+                                for (int i = ti; i < Math.min(ti1, j); i++)
+                                {
+                                    tq.add(j, i, c[(i - ti) * TILE + j - tj]);
+                                }
+                            }
+                        }
+                    }
+                }
+                progress.done();
+                });
+        }
+        
+        return tq;
+    }
+    
+    //Each target has its own row of the heaps so targets can be spread across
+    //the pool without any locking
+    private TopHeaps candidatetopheaps(byte[][] data, int n, int[] targets, IntFunction<int[]> candidates)
+    {
+        Prepared prepared = prepare(data);
+        Progress progress = ProgressFactory.get(targets.length);
+        
+        TopHeaps tq = new TopHeaps(targets.length, n);
+        
+        Parallel.forEach(targets.length, t ->
+            {
+            int i = targets[t];
+            int[] c = candidates.apply(i);
+            if (c == null)
+            {
+                for (int j = 0; j < data.length; j++)
+                {
+                    if (j != i)
+                    {
+                        tq.add(t, j, prepared.calculate(i,j));
+                    }
+                }
+            }
+            else
+            {
+                for (int j: c)
+                {
+                    if (j != i)
+                    {
+                        tq.add(t, j, prepared.calculate(i,j));
+                    }
+                }
+            }
+            progress.done();
+            });
+        
+        return tq;
+    }
+    
+    /**
+     * Calculates the correlation between two arrays
+     * @param d1 The first array
+     * @param d2 The second array
+     * @return The correlation
+     */
+    public abstract double calculate(byte[] d1, byte[] d2);
+    
+    /**
+     * Prepares data for calculating the correlations between many pairs of its
+     * arrays, as done by the functions above.  Implementing classes can
+     * override this to convert the data into a form that is quicker to work
+     * with, as long as the correlations are the same as from calculate.  By
+     * default the arrays are used as is.
+     * @param data The data
+     * @return The prepared data
+     */
+    protected Prepared prepare(byte[][] data)
+    {
+        return (i,j) -> calculate(data[i],data[j]);
+    }
+    
+    /**
+     * Data that has been prepared for calculating correlations between pairs
+     * of its arrays
+     */
+    @FunctionalInterface
+    protected interface Prepared
+    {
+        /**
+         * Calculates the correlation between two arrays
+         * @param i The position of the first array
+         * @param j The position of the second array
+         * @return The correlation
+         */
+        double calculate(int i, int j);
+    }
+    
+    //Splits the arrays into blocks and numbers the tiles on or above the
+    //diagonal of the block by block grid row by row
+    private static class Tiles
+    {
+        Tiles(int size)
+        {
+            int w = TILE;
+            while (count(size, w) > Integer.MAX_VALUE)
+            {
+                w *= 2;
+            }
+            this.size = size;
+            this.width = w;
+            this.blocks = (size + w - 1) / w;
+        }
+        
+        int count()
+        {
+            return (int) count(size, width);
+        }
+        
+        int blocks()
+        {
+            return blocks;
+        }
+        
+        int width()
+        {
+            return width;
+        }
+        
+        int start(int block)
+        {
+            return block * width;
+        }
+        
+        int end(int block)
+        {
+            return (int) Math.min(size, (long) (block + 1) * width);
+        }
+        
+        int row(int t)
+        {
+            //Invert first(row) <= t, correcting for any rounding
+            double b = 2.0 * blocks + 1.0;
+            int r = (int) ((b - Math.sqrt(b * b - 8.0 * t)) / 2.0);
+            r = Math.max(0, Math.min(blocks - 1, r));
+            while ((r > 0) && (first(r) > t))
+            {
+                r--;
+            }
+            while ((r < blocks - 1) && (first(r + 1) <= t))
+            {
+                r++;
+            }
+            return r;
+        }
+        
+        int column(int t, int row)
+        {
+            return row + (int) (t - first(row));
+        }
+        
+        private long first(int row)
+        {
+            return (long) row * blocks - (long) row * (row - 1) / 2;
+        }
+        
+        private static long count(int size, int width)
+        {
+            long b = (size + width - 1) / width;
+            return b * (b + 1) / 2;
+        }
+        
+        private final int size;
+        private final int width;
+        private final int blocks;
+    }
+    
+    //Number of arrays along each side of a tile
+    private static final int TILE = 64;
+}
@@ -0,0 +1,224 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+/**
+ * Calculates LD (r squared) from the maximum likelihood haplotype frequencies
+ * of two diploid snps without a numerical search.  Only the haplotypes of
+ * double heterozygotes are unknown and at the fixed point of the EM algorithm
+ * the frequency of the AB haplotype is a root of a cubic, which is solved
+ * directly.  Where the cubic has more than one root giving valid haplotype
+ * frequencies the one with the highest likelihood is used.
+ *
+ * This is an approximation of EM rather than the same measure.  Allele
+ * frequencies are those of the samples called at both snps, which are the
+ * maximum likelihood estimates for those samples, whereas EM takes each
+ * snp's allele frequency from every sample called at that snp.  The two
+ * agree closely when no calls are missing but can differ, sometimes by a lot,
+ * when calls are missing.
+ * Snps with only one allele in the samples called at both have an LD of
+ * zero, as for Pearson.
+ *
+ * As for Pearson, when LD is calculated between many pairs of snps the calls
+ * are stored as bit planes (see GenotypePlanes) and the table of genotype
+ * counts for each pair found by counting bits.  Calls must be diploid (0, 1,
+ * 2 or missing).
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class FastEM extends Correlation
+{
+    @Override
+    public double calculate(byte[] d1, byte[] d2)
+    {
+        int[] counts = new int[9];
+        for (int i = 0; i < d1.length; i++)
+        {
+            if ((d1[i] >= 0) && (d2[i] >= 0))
+            {
+                if ((d1[i] > 2) || (d2[i] > 2))
+                {
+                    throw new IllegalArgumentException("EM LD can only be calculated from diploid calls");
+                }
+                counts[3 * d1[i] + d2[i]] ++;
+            }
+        }
+
+        return fromCounts(counts);
+    }
+
+    @Override
+    protected Prepared prepare(byte[][] data)
+    {
+        if (!GenotypePlanes.canStore(data))
+        {
+            return super.prepare(data);
+        }
+        GenotypePlanes planes = new GenotypePlanes(data);
+        return (i,j) ->
+        {
+            int[] counts = new int[9];
+            planes.counts(i, j, counts);
+            return fromCounts(counts);
+        };
+    }
+
+    //Counts are indexed by 3 * first genotype + second genotype, with
+    //genotype 0 being homozygous for allele A (or B)
+    private static double fromCounts(int[] counts)
+    {
+        int n = 0;
+        for (int k = 0; k < 9; k++)
+        {
+            n += counts[k];
+        }
+        //Number of haplotypes
+        double m = 2.0 * n;
+
+        //Haplotype counts from all but the double heterozygotes
+        double nAB = 2 * counts[0] + counts[1] + counts[3];
+        double nAb = 2 * counts[2] + counts[1] + counts[5];
+        double naB = 2 * counts[6] + counts[3] + counts[7];
+        double nab = 2 * counts[8] + counts[5] + counts[7];
+        double h = counts[4];
+
+        double pA = (nAB + nAb + h) / m;
+        double pB = (nAB + naB + h) / m;
+        if (!(pA > 0.0) || !(pA < 1.0) || !(pB > 0.0) || !(pB < 1.0))
+        {
+            return 0.0;
+        }
+
+        double lo = Math.max(0.0, pA + pB - 1.0);
+        double hi = Math.min(pA, pB);
+
+        double pAB;
+        if (h == 0.0)
+        {
+            pAB = nAB / m;
+        }
+        else
+        {
+            //At the fixed point m * pAB = nAB + h * pAB * pab / (pAB * pab + pAb * paB)
+            //which rearranges to this cubic in pAB
+            double s = 1.0 - 2.0 * pA - 2.0 * pB;
+            double[] roots = cubic(2.0 * m,
+                    m * s - 2.0 * nAB - h,
+                    m * pA * pB - nAB * s - h * (1.0 - pA - pB),
+                    -nAB * pA * pB);
+
+            pAB = Double.NaN;
+            double best = Double.NEGATIVE_INFINITY;
+            for (double r: roots)
+            {
+                if ((r >= lo - EPSILON) && (r <= hi + EPSILON))
+                {
+                    double x = Math.max(lo, Math.min(hi, r));
+                    double l = l(x, nAB, nAb, naB, nab, h, pA, pB);
+                    if (Double.isNaN(pAB) || (l > best))
+                    {
+                        pAB = x;
+                        best = l;
+                    }
+                }
+            }
+            //Rounding has pushed every root out of range, so the maximum is
+            //at one end of it
+            if (Double.isNaN(pAB))
+            {
+                pAB = (l(lo, nAB, nAb, naB, nab, h, pA, pB) >= l(hi, nAB, nAb, naB, nab, h, pA, pB)) ? lo : hi;
+            }
+        }
+
+        double d = pAB - pA * pB;
+        return (d * d) / (pA * (1.0 - pA) * pB * (1.0 - pB));
+    }
+
+    //Log likelihood of the haplotype frequencies, as in EM, without terms
+    //whose count is zero so frequencies of zero are allowed where possible
+    private static double l(double pAB, double nAB, double nAb, double naB, double nab, double h,
+            double pA, double pB)
+    {
+        double pAb = pA - pAB;
+        double paB = pB - pAB;
+        double pab = 1.0 - pA - pB + pAB;
+
+        return term(nAB, pAB) + term(nAb, pAb) + term(naB, paB) + term(nab, pab) +
+                term(h, pAB * pab + pAb * paB);
+    }
+
+    private static double term(double count, double p)
+    {
+        return (count == 0.0) ? 0.0 : count * Math.log(p);
+    }
+
+    //Real roots of a x^3 + b x^2 + c x + d, each polished with Newton's
+    //method
+    private static double[] cubic(double a, double b, double c, double d)
+    {
+        double b1 = b / a;
+        double c1 = c / a;
+        double d1 = d / a;
+
+        //Substituting x = t - b1 / 3 gives t^3 + p t + q
+        double shift = b1 / 3.0;
+        double p = c1 - b1 * shift;
+        double q = 2.0 * shift * shift * shift - c1 * shift + d1;
+        double disc = q * q / 4.0 + p * p * p / 27.0;
+
+        double[] roots;
+        if (disc > 0.0)
+        {
+            double sq = Math.sqrt(disc);
+            roots = new double[]{Math.cbrt(-q / 2.0 + sq) + Math.cbrt(-q / 2.0 - sq) - shift};
+        }
+        else if (p == 0.0)
+        {
+            roots = new double[]{-shift};
+        }
+        else
+        {
+            double r = 2.0 * Math.sqrt(-p / 3.0);
+            double phi = Math.acos(Math.max(-1.0, Math.min(1.0, 3.0 * q / (p * r)))) / 3.0;
+            roots = new double[3];
+            for (int k = 0; k < 3; k++)
+            {
+                roots[k] = r * Math.cos(phi - 2.0 * Math.PI * k / 3.0) - shift;
+            }
+        }
+
+        for (int k = 0; k < roots.length; k++)
+        {
+            for (int it = 0; it < NEWTON; it++)
+            {
+                double x = roots[k];
+                double f = ((x + b1) * x + c1) * x + d1;
+                double df = (3.0 * x + 2.0 * b1) * x + c1;
+                if (df == 0.0)
+                {
+                    break;
+                }
+                roots[k] = x - f / df;
+            }
+        }
+        return roots;
+    }
+
+    private static final double EPSILON = 1e-9;
+    private static final int NEWTON = 2;
+}
@@ -0,0 +1,233 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Hard calls stored in a file, one snp after another, so that blocks of snps
+ * can be read (through a memory mapping) as needed rather than holding every
+ * call in memory.  If every call is 0, 1, 2 or missing each is stored in two
+ * bits, otherwise in a byte.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class GenotypeFile implements Closeable
+{
+
+    /**
+     * Opens a file
+     * @param f The file
+     * @throws IOException If there is a problem reading the file or it isn't
+     * a genotype file
+     */
+    public GenotypeFile(File f) throws IOException
+    {
+        file = new RandomAccessFile(f, "r");
+        channel = file.getChannel();
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+        if ((header.getInt() != MAGIC) || (header.getInt() != VERSION))
+        {
+            close();
+            throw new IOException(f + " is not a genotype file");
+        }
+        snps = header.getInt();
+        samples = header.getInt();
+        packed = (header.getInt() == 2);
+        rowBytes = rowBytes(samples, packed);
+    }
+
+    /**
+     * Writes calls to a file
+     * @param f The file
+     * @param data The calls, indexed by snp then sample
+     * @throws IOException If there is a problem writing the file
+     */
+    public static void write(File f, byte[][] data) throws IOException
+    {
+        int samples = (data.length > 0) ? data[0].length : 0;
+        try (Writer w = new Writer(f, samples, GenotypePlanes.canStore(data)))
+        {
+            for (byte[] d: data)
+            {
+                w.add(d);
+            }
+        }
+    }
+
+    /**
+     * Get the number of snps
+     * @return The number of snps
+     */
+    public int getSNPs()
+    {
+        return snps;
+    }
+
+    /**
+     * Get the number of samples
+     * @return The number of samples
+     */
+    public int getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * Reads a block of snps
+     * @param from The first snp (inclusive)
+     * @param to The last snp (exclusive)
+     * @return The calls, indexed by snp (from zero for the first snp) then
+     * sample
+     * @throws IOException If there is a problem reading the file
+     */
+    public byte[][] read(int from, int to) throws IOException
+    {
+        //Each block is mapped separately as a single mapping is limited to
+        //2GB
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                HEADER + (long) from * rowBytes, (long) (to - from) * rowBytes);
+        byte[][] data = new byte[to - from][samples];
+        byte[] row = new byte[rowBytes];
+        for (int i = 0; i < data.length; i++)
+        {
+            buffer.get(row);
+            if (packed)
+            {
+                for (int s = 0; s < samples; s++)
+                {
+                    int c = (row[s >>> 2] >>> ((s & 3) << 1)) & 3;
+                    data[i][s] = (c == 3) ? -1 : (byte) c;
+                }
+            }
+            else
+            {
+                System.arraycopy(row, 0, data[i], 0, samples);
+            }
+        }
+        return data;
+    }
+
+    public void close() throws IOException
+    {
+        file.close();
+    }
+
+    private static int rowBytes(int samples, boolean packed)
+    {
+        return packed ? (samples + 3) / 4 : samples;
+    }
+
+    //Writes a genotype file one snp at a time
+    private static class Writer implements Closeable
+    {
+
+        /**
+         * Constructor
+         * @param f The file
+         * @param samples The number of samples
+         * @param packed Whether to store each call in two bits, in which case
+         * every call must be 0, 1, 2 or -1 (missing)
+         * @throws IOException If there is a problem creating the file
+         */
+        public Writer(File f, int samples, boolean packed) throws IOException
+        {
+            this.f = f;
+            this.samples = samples;
+            this.packed = packed;
+            row = new byte[rowBytes(samples, packed)];
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+            //Number of snps is filled in on close
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            out.writeInt(samples);
+            out.writeInt(packed ? 2 : 8);
+        }
+
+        /**
+         * Adds a snp
+         * @param calls The calls for the snp, one per sample
+         * @throws IOException If there is a problem writing the file
+         */
+        public void add(byte[] calls) throws IOException
+        {
+            if (calls.length != samples)
+            {
+                throw new IllegalArgumentException("Expected calls for " + samples + " samples");
+            }
+            if (packed)
+            {
+                Arrays.fill(row, (byte) 0);
+                for (int s = 0; s < samples; s++)
+                {
+                    if ((calls[s] < -1) || (calls[s] > 2))
+                    {
+                        throw new IllegalArgumentException("Only calls of 0, 1, 2 or missing can be packed");
+                    }
+                    int c = (calls[s] < 0) ? 3 : calls[s];
+                    row[s >>> 2] |= c << ((s & 3) << 1);
+                }
+                out.write(row);
+            }
+            else
+            {
+                out.write(calls);
+            }
+            snps++;
+        }
+
+        public void close() throws IOException
+        {
+            out.close();
+            try (RandomAccessFile raf = new RandomAccessFile(f, "rw"))
+            {
+                raf.seek(8);
+                raf.writeInt(snps);
+            }
+        }
+
+        private final File f;
+        private final int samples;
+        private final boolean packed;
+        private final byte[] row;
+        private final DataOutputStream out;
+        private int snps;
+    }
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int snps;
+    private final int samples;
+    private final boolean packed;
+    private final int rowBytes;
+
+    private static final int HEADER = 20;
+    private static final int MAGIC = 0x47454e4f;
+    private static final int VERSION = 1;
+}
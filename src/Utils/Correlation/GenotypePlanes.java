@@ -0,0 +1,151 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+import Utils.Parallel;
+
+/**
+ * Diploid hard calls for a set of snps stored as bit planes.  For each snp
+ * there is one plane per genotype (0, 1 and 2) with a bit set for each sample
+ * with that genotype; missing genotypes have no bit set in any plane.  The
+ * table of genotype counts between two snps can then be found 64 samples at a
+ * time by counting the bits in ANDed words.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class GenotypePlanes
+{
+
+    /**
+     * Constructor
+     * @param data The calls, indexed by snp then sample.  Every call must be
+     * 0, 1, 2 or -1 (missing), see canStore.
+     */
+    public GenotypePlanes(byte[][] data)
+    {
+        samples = (data.length > 0) ? data[0].length : 0;
+        words = (samples + 63) / 64;
+        planes = new long[data.length][];
+        Parallel.forEach(data.length, i ->
+        {
+            byte[] d = data[i];
+            long[] p = new long[3 * words];
+            for (int s = 0; s < d.length; s++)
+            {
+                if (d[s] >= 0)
+                {
+                    p[d[s] * words + (s >>> 6)] |= 1L << s;
+                }
+            }
+            planes[i] = p;
+        });
+    }
+
+    /**
+     * Tests whether a set of calls can be stored as bit planes, that is
+     * whether all calls are 0, 1, 2 or -1 (missing)
+     * @param data The calls
+     * @return Whether the calls can be stored
+     */
+    public static boolean canStore(byte[][] data)
+    {
+        for (byte[] d: data)
+        {
+            for (byte b: d)
+            {
+                if ((b < -1) || (b > 2))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of snps
+     * @return The number of snps
+     */
+    public int size()
+    {
+        return planes.length;
+    }
+
+    /**
+     * Get the number of samples
+     * @return The number of samples
+     */
+    public int getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * Counts the samples with each pair of genotypes at two snps, ignoring
+     * samples missing at either
+     * @param a The first snp
+     * @param b The second snp
+     * @param counts Array of size nine the counts are written to, indexed by
+     * 3 * genotype at a + genotype at b
+     */
+    public void counts(int a, int b, int[] counts)
+    {
+        long[] pa = planes[a];
+        long[] pb = planes[b];
+        int w1 = words;
+        int w2 = 2 * words;
+
+        int c00 = 0, c01 = 0, c02 = 0;
+        int c10 = 0, c11 = 0, c12 = 0;
+        int c20 = 0, c21 = 0, c22 = 0;
+
+        for (int w = 0; w < words; w++)
+        {
+            long a0 = pa[w];
+            long a1 = pa[w1 + w];
+            long a2 = pa[w2 + w];
+            long b0 = pb[w];
+            long b1 = pb[w1 + w];
+            long b2 = pb[w2 + w];
+
+            c00 += Long.bitCount(a0 & b0);
+            c01 += Long.bitCount(a0 & b1);
+            c02 += Long.bitCount(a0 & b2);
+            c10 += Long.bitCount(a1 & b0);
+            c11 += Long.bitCount(a1 & b1);
+            c12 += Long.bitCount(a1 & b2);
+            c20 += Long.bitCount(a2 & b0);
+            c21 += Long.bitCount(a2 & b1);
+            c22 += Long.bitCount(a2 & b2);
+        }
+
+        counts[0] = c00;
+        counts[1] = c01;
+        counts[2] = c02;
+        counts[3] = c10;
+        counts[4] = c11;
+        counts[5] = c12;
+        counts[6] = c20;
+        counts[7] = c21;
+        counts[8] = c22;
+    }
+
+    private final long[][] planes;
+    private final int samples;
+    private final int words;
+}
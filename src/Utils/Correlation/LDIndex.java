@@ -0,0 +1,547 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+import Utils.Log;
+import VCF.PositionMeta;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * Keeps the snps in highest LD with each snp so they only have to be found
+ * once for a dataset.  Neighbours are indexed by a hash of the hard calls, the
+ * snps, the correlation and the search, so the optimization, validation and
+ * test stages of accuracy mode (which all use the same hard calls) share one
+ * index, as does a later impute mode run on the same data.
+ *
+ * Indexes are kept in memory for the current run and, if a directory is
+ * given, saved to a file there from which they are read by later runs.  Only
+ * the snps asked for are found; the neighbours of further snps are found and
+ * added to the index when first needed.
+ *
+ * An index can also be found by several processes, each doing a share of
+ * the work, and then merged (see LDShards).
+ *
+ * Like Log this is set up once, from the config, at the start of a run.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class LDIndex
+{
+    private LDIndex()
+    {
+    }
+
+    /**
+     * Initialise from a configuration
+     * @param params Configuration
+     */
+    public static void initialise(HierarchicalConfiguration<ImmutableNode> params)
+    {
+        String d = params.getString("directory",null);
+        initialise((d != null) ? new File(d) : null);
+    }
+
+    /**
+     * Initialise
+     * @param directory The directory indexes are saved to and read from.  If
+     * null indexes are only kept in memory.
+     */
+    public static synchronized void initialise(File directory)
+    {
+        LDIndex.directory = directory;
+        cache.clear();
+        supersets.clear();
+    }
+
+    /**
+     * Get the config for the index settings
+     * @param directory The directory indexes are saved to and read from, or
+     * null if they are only kept in memory
+     * @return The config
+     */
+    public static ImmutableNode getConfig(File directory)
+    {
+        ImmutableNode.Builder config = new ImmutableNode.Builder().name("ldindex");
+        if (directory != null)
+        {
+            config.addChild(new ImmutableNode.Builder().name("directory").value(directory.getPath()).create());
+        }
+        return config.create();
+    }
+
+    /**
+     * Get the config for the current index settings
+     * @return The config
+     */
+    public static ImmutableNode getConfig()
+    {
+        return getConfig(directory);
+    }
+
+    /**
+     * Returns the snps in highest LD with the given snps, from the index if
+     * they have been found before
+     * @param ld How the snps in highest LD are searched for
+     * @param corr The correlation used to measure LD
+     * @param data The calls, indexed by snp then sample
+     * @param n Return at least this number of snps in highest LD (unless there
+     * are fewer snps to compare with)
+     * @param list The position of the snps whose neighbours are needed, or
+     * null for every snp
+     * @param positions The position of each snp (may be null)
+     * @return Array indexed by snp of the snps in highest LD with it, best
+     * first.  Snps that weren't asked for may be null.
+     */
+    public static synchronized int[][] neighbours(LDSearch ld, Correlation corr, byte[][] data, int n,
+            Set<Integer> list, PositionMeta[] positions)
+    {
+        String settings = settings(ld, corr, n);
+        String key = key(settings, data, positions);
+
+        Table table = cache.remove(key);
+        if (table == null)
+        {
+            table = read(key, data.length);
+        }
+        if (table == null)
+        {
+            table = new Table(data.length);
+        }
+        cache.put(key, table);
+        while (cache.size() > CACHED)
+        {
+            cache.remove(cache.keySet().iterator().next());
+        }
+
+        Set<Integer> missing = new TreeSet<>();
+        for (int i = 0; i < data.length; i++)
+        {
+            if ((table.rows[i] == null) && ((list == null) || list.contains(i)))
+            {
+                missing.add(i);
+            }
+        }
+        boolean changed = false;
+
+        //Snps removed by filtering can't change the LD between the snps that
+        //remain so their neighbours can be taken from an index of a larger
+        //set of snps, as long as the search doesn't count snps
+        if (!missing.isEmpty() && (positions != null) && !ld.countsSNPs())
+        {
+            table.ids = ids(data, positions);
+            for (Table superset: supersets)
+            {
+                if (superset.settings.equals(settings) && (superset != table))
+                {
+                    changed |= derive(superset, table, missing, n);
+                }
+            }
+        }
+
+        if (!missing.isEmpty())
+        {
+            int m = candidates(n);
+            Map<Integer,int[]> top;
+            if (missing.size() < (data.length / 2))
+            {
+                top = ld.limitedtopn(corr, data, m, missing, positions);
+            }
+            else
+            {
+                top = ld.topn(corr, data, m, positions);
+            }
+            for (Entry<Integer,int[]> e: top.entrySet())
+            {
+                int i = e.getKey();
+                //topn pads the list if there are fewer snps than asked for
+                int[] row = e.getValue();
+                table.rows[i] = (row.length > data.length - 1) ? Arrays.copyOf(row, data.length - 1) : row;
+                table.full[i] = true;
+            }
+            changed = true;
+
+            if (table.ids != null)
+            {
+                table.settings = settings;
+                addSuperset(table);
+            }
+        }
+
+        if (changed)
+        {
+            write(directory, key, table);
+        }
+
+        return table.rows;
+    }
+
+    /**
+     * Get the directory indexes are saved to and read from
+     * @return The directory, or null if indexes are only kept in memory
+     */
+    public static synchronized File getDirectory()
+    {
+        return directory;
+    }
+
+    //The key a search's neighbours are indexed under, so that they can be
+    //found by other processes (see LDShards)
+    static String key(LDSearch ld, Correlation corr, byte[][] data, int n, PositionMeta[] positions)
+    {
+        return key(settings(ld, corr, n), data, positions);
+    }
+
+    //Saves neighbours found by a search for every snp, each with at least
+    //candidates(n) snps, as an index in the given directory
+    static void write(File directory, String key, int[][] rows) throws IOException
+    {
+        Table table = new Table(rows.length);
+        for (int i = 0; i < rows.length; i++)
+        {
+            table.rows[i] = rows[i];
+            table.full[i] = true;
+        }
+        if (!write(directory, key, table))
+        {
+            throw new IOException("Could not write LD index to " + directory);
+        }
+    }
+
+    //Takes the neighbours of missing snps in the table from the superset's
+    //neighbours that are in the table.  This is exact when either the
+    //superset's list for a snp includes all its candidates or at least n of
+    //them are in the table.  Any snps this can't be done for are left
+    //missing.
+    private static boolean derive(Table superset, Table table, Set<Integer> missing, int n)
+    {
+        int[] map = new int[superset.rows.length];
+        Arrays.fill(map, -1);
+        int[] fromSuperset = new int[table.rows.length];
+        for (int i = 0; i < table.rows.length; i++)
+        {
+            int s = superset.find(table.ids[i]);
+            if (s < 0)
+            {
+                //A snp (or its calls) isn't in the superset so can't tell if
+                //it would be a neighbour
+                return false;
+            }
+            map[s] = i;
+            fromSuperset[i] = s;
+        }
+
+        int m = candidates(n);
+        boolean changed = false;
+        //A search pads its list with zeros if it finds fewer neighbours than
+        //asked for (e.g. if some correlations are NaN) so only count each
+        //neighbour once
+        int[] seen = new int[superset.rows.length];
+        Arrays.fill(seen, -1);
+        Iterator<Integer> it = missing.iterator();
+        while (it.hasNext())
+        {
+            int i = it.next();
+            int s = fromSuperset[i];
+            int[] srow = superset.rows[s];
+            if ((srow == null) || !superset.full[s])
+            {
+                continue;
+            }
+            int[] row = new int[Math.min(n, srow.length)];
+            int k = 0;
+            for (int j = 0; (j < srow.length) && (k < row.length); j++)
+            {
+                if ((map[srow[j]] >= 0) && (seen[srow[j]] != i))
+                {
+                    seen[srow[j]] = i;
+                    row[k++] = map[srow[j]];
+                }
+            }
+            if ((k == row.length) || (srow.length < m))
+            {
+                table.rows[i] = Arrays.copyOf(row, k);
+                it.remove();
+                changed = true;
+            }
+        }
+        if (changed)
+        {
+            Log.debug("Derived LD neighbours from the index of a larger set of snps");
+        }
+        return changed;
+    }
+
+    //Keeps the tables with the most snps as possible supersets for later
+    //queries
+    private static void addSuperset(Table table)
+    {
+        if (!supersets.contains(table))
+        {
+            supersets.add(table);
+            supersets.sort(Comparator.comparingInt((Table t) -> t.rows.length).reversed());
+            while (supersets.size() > SUPERSETS)
+            {
+                supersets.remove(supersets.size() - 1);
+            }
+        }
+    }
+
+    //Number of neighbours found for each snp.  More than n are found so that
+    //the n best remaining after some snps are filtered out can usually be
+    //taken from the list.
+    static int candidates(int n)
+    {
+        return n + n / 2;
+    }
+
+    private static String settings(LDSearch ld, Correlation corr, int n)
+    {
+        return "LDIndex " + VERSION + "\t" + n + "\t" + corr.getClass().getName() + "\t" + ld.getKey();
+    }
+
+    //Identifies each snp by its position and calls
+    private static long[] ids(byte[][] data, PositionMeta[] positions)
+    {
+        long[] ids = new long[data.length];
+        for (int i = 0; i < data.length; i++)
+        {
+            long h = FNV_OFFSET;
+            for (byte b: (positions[i].getChrom() + "\t" + positions[i].getPosition() + "\t")
+                    .getBytes(StandardCharsets.UTF_8))
+            {
+                h = (h ^ (b & 0xff)) * FNV_PRIME;
+            }
+            for (byte b: data[i])
+            {
+                h = (h ^ (b & 0xff)) * FNV_PRIME;
+            }
+            ids[i] = h;
+        }
+        return ids;
+    }
+
+    private static String key(String settings, byte[][] data, PositionMeta[] positions)
+    {
+        MessageDigest md;
+        try
+        {
+            md = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            //Every Java platform must support SHA-256
+            throw new IllegalStateException(ex);
+        }
+
+        update(md, settings + "\n");
+        update(md, data.length + "\n");
+        for (byte[] d: data)
+        {
+            update(md, d.length + "\n");
+            md.update(d);
+        }
+        if (positions != null)
+        {
+            for (PositionMeta p: positions)
+            {
+                update(md, p.getChrom() + "\t" + p.getPosition() + "\n");
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b: md.digest())
+        {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void update(MessageDigest md, String s)
+    {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Table read(String key, int snps)
+    {
+        if (directory == null)
+        {
+            return null;
+        }
+        File f = new File(directory, key + SUFFIX);
+        if (!f.exists())
+        {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f))))
+        {
+            if ((in.readInt() != MAGIC) || (in.readInt() != VERSION) || (in.readInt() != snps))
+            {
+                Log.detail("Ignoring LD index " + f + " as it does not match the data");
+                return null;
+            }
+            Table table = new Table(snps);
+            for (int i = 0; i < snps; i++)
+            {
+                int l = in.readInt();
+                if (l >= 0)
+                {
+                    table.full[i] = in.readBoolean();
+                    table.rows[i] = new int[l];
+                    for (int j = 0; j < l; j++)
+                    {
+                        table.rows[i][j] = in.readInt();
+                    }
+                }
+            }
+            Log.debug("Read LD index " + f);
+            return table;
+        }
+        catch (IOException ex)
+        {
+            Log.detail("Ignoring LD index " + f + " as it could not be read");
+            return null;
+        }
+    }
+
+    private static boolean write(File directory, String key, Table table)
+    {
+        if (directory == null)
+        {
+            return false;
+        }
+        File f = new File(directory, key + SUFFIX);
+        File temp = new File(directory, key + SUFFIX + ".tmp");
+        try
+        {
+            Files.createDirectories(directory.toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(table.rows.length);
+                for (int i = 0; i < table.rows.length; i++)
+                {
+                    int[] row = table.rows[i];
+                    if (row == null)
+                    {
+                        out.writeInt(-1);
+                    }
+                    else
+                    {
+                        out.writeInt(row.length);
+                        out.writeBoolean(table.full[i]);
+                        for (int j: row)
+                        {
+                            out.writeInt(j);
+                        }
+                    }
+                }
+            }
+            //Replace in one step so a run reading the index never sees half
+            //a file
+            Files.move(temp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Log.debug("Written LD index " + f);
+            return true;
+        }
+        catch (IOException ex)
+        {
+            //The index is only an optimization so carry on without it
+            Log.detail("Could not write LD index " + f);
+            temp.delete();
+            return false;
+        }
+    }
+
+    //The neighbours found for one set of calls
+    private static class Table
+    {
+        Table(int snps)
+        {
+            rows = new int[snps][];
+            full = new boolean[snps];
+        }
+
+        //Finds the snp with the given id, or -1 if there isn't exactly one
+        int find(long id)
+        {
+            if (sorted == null)
+            {
+                sorted = ids.clone();
+                Arrays.sort(sorted);
+                order = IntStream.range(0, ids.length).boxed()
+                        .sorted(Comparator.comparingLong((Integer i) -> ids[i]))
+                        .mapToInt(i -> i).toArray();
+            }
+            int p = Arrays.binarySearch(sorted, id);
+            if ((p < 0) || ((p > 0) && (sorted[p - 1] == id)) ||
+                    ((p < sorted.length - 1) && (sorted[p + 1] == id)))
+            {
+                return -1;
+            }
+            return order[p];
+        }
+
+        final int[][] rows;
+        //Whether a snp's neighbours were found by a search (rather than
+        //derived from a superset) so can be used to derive others
+        final boolean[] full;
+        String settings;
+        long[] ids;
+        private long[] sorted;
+        private int[] order;
+    }
+
+    private static File directory = null;
+    //Indexes for the most recently used datasets in least recently used order
+    private static final Map<String,Table> cache = new LinkedHashMap<>();
+    //Indexes with the most snps, largest first
+    private static final List<Table> supersets = new ArrayList<>();
+
+    private static final int CACHED = 2;
+    private static final int SUPERSETS = 2;
+    private static final int MAGIC = 0x4c444958;
+    private static final int VERSION = 2;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String SUFFIX = ".ldindex";
+}
@@ -0,0 +1,551 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+import Utils.Log;
+import VCF.PositionMeta;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * Finds the snps in highest LD with each snp.  By default every snp is
+ * compared with every other snp.  Alternatively the search can be restricted
+ * to a window around each snp on the same chromosome, given as a maximum
+ * distance in base pairs and / or a maximum number of snps either side, which
+ * makes the search linear rather than quadratic in the number of snps.
+ *
+ * Snps on unplaced contigs (those whose chromosome name matches a pattern, by
+ * default names such as 0, Un, chrUn_..., ..._random, scaffold... and
+ * contig...) or without a numeric position are always compared with every
+ * other snp.
+ *
+ * Comparing with every other snp can instead be approximated by only
+ * comparing with candidates found by locality sensitive hashing (see
+ * SimHashCandidates), which is close to linear in the number of snps.  A
+ * target recall, the proportion of the true highest LD snps that are found,
+ * is given.  Hash tables, and then candidates per table, are added until the
+ * recall, estimated by an exact search for a sample of snps, reaches the
+ * target.  The estimated recall is logged and kept (see getEstimatedRecall)
+ * so it can be reported with accuracy.  If the target can't be reached
+ * without comparing a large proportion of snps an exact search is done.
+ *
+ * LD is measured by Pearson's r squared by default.  Alternatively r squared
+ * can be calculated from haplotype frequencies estimated by EM, either by a
+ * numerical search (EM) or, approximately, directly (FastEM).
+ *
+ * An exact search of every snp against every other can also be split between
+ * processes (see LDShards).
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class LDSearch
+{
+
+    /**
+     * Creates a search that compares every snp with every other snp
+     */
+    public LDSearch()
+    {
+        this(0,0);
+    }
+
+    /**
+     * Creates a windowed search
+     * @param windowBP Only compare snps at most this many base pairs apart.
+     * Zero for no limit.
+     * @param windowSNPs Only compare snps at most this many snps apart on
+     * the same chromosome.  Zero for no limit.
+     */
+    public LDSearch(int windowBP, int windowSNPs)
+    {
+        this(windowBP,windowSNPs,DEFAULT_UNPLACED);
+    }
+
+    /**
+     * Creates a windowed search
+     * @param windowBP Only compare snps at most this many base pairs apart.
+     * Zero for no limit.
+     * @param windowSNPs Only compare snps at most this many snps apart on
+     * the same chromosome.  Zero for no limit.
+     * @param unplaced Regular expression matching the names of unplaced
+     * contigs
+     */
+    public LDSearch(int windowBP, int windowSNPs, String unplaced)
+    {
+        this(windowBP,windowSNPs,unplaced,0.0);
+    }
+
+    /**
+     * Creates a windowed and / or approximate search
+     * @param windowBP Only compare snps at most this many base pairs apart.
+     * Zero for no limit.
+     * @param windowSNPs Only compare snps at most this many snps apart on
+     * the same chromosome.  Zero for no limit.
+     * @param recall Where snps would be compared with every other snp instead
+     * use an approximate search with this target recall.  Zero (or one) for an
+     * exact search.
+     */
+    public LDSearch(int windowBP, int windowSNPs, double recall)
+    {
+        this(windowBP,windowSNPs,DEFAULT_UNPLACED,recall);
+    }
+
+    /**
+     * Creates a windowed and / or approximate search
+     * @param windowBP Only compare snps at most this many base pairs apart.
+     * Zero for no limit.
+     * @param windowSNPs Only compare snps at most this many snps apart on
+     * the same chromosome.  Zero for no limit.
+     * @param recall Where snps would be compared with every other snp instead
+     * use an approximate search with this target recall.  Zero (or one) for an
+     * exact search.
+     * @param method How LD is measured, one of pearson, em or fastem
+     */
+    public LDSearch(int windowBP, int windowSNPs, double recall, String method)
+    {
+        this(windowBP,windowSNPs,DEFAULT_UNPLACED,recall,method);
+    }
+
+    /**
+     * Creates a windowed and / or approximate search
+     * @param windowBP Only compare snps at most this many base pairs apart.
+     * Zero for no limit.
+     * @param windowSNPs Only compare snps at most this many snps apart on
+     * the same chromosome.  Zero for no limit.
+     * @param unplaced Regular expression matching the names of unplaced
+     * contigs
+     * @param recall Where snps would be compared with every other snp instead
+     * use an approximate search with this target recall.  Zero (or one) for an
+     * exact search.
+     */
+    public LDSearch(int windowBP, int windowSNPs, String unplaced, double recall)
+    {
+        this(windowBP,windowSNPs,unplaced,recall,DEFAULT_METHOD);
+    }
+
+    /**
+     * Creates a windowed and / or approximate search
+     * @param windowBP Only compare snps at most this many base pairs apart.
+     * Zero for no limit.
+     * @param windowSNPs Only compare snps at most this many snps apart on
+     * the same chromosome.  Zero for no limit.
+     * @param unplaced Regular expression matching the names of unplaced
+     * contigs
+     * @param recall Where snps would be compared with every other snp instead
+     * use an approximate search with this target recall.  Zero (or one) for an
+     * exact search.
+     * @param method How LD is measured, one of pearson, em or fastem
+     */
+    public LDSearch(int windowBP, int windowSNPs, String unplaced, double recall, String method)
+    {
+        if (!METHODS.contains(method.toLowerCase()))
+        {
+            throw new IllegalArgumentException("Unknown LD method " + method + ", expected one of " + METHODS);
+        }
+        this.method = method.toLowerCase();
+        this.windowBP = windowBP;
+        this.windowSNPs = windowSNPs;
+        this.unplaced = unplaced;
+        this.recall = recall;
+        unplacedPattern = Pattern.compile(unplaced);
+    }
+
+    /**
+     * Creates the search from the given configuration
+     * @param params The configuration
+     */
+    public LDSearch(HierarchicalConfiguration<ImmutableNode> params)
+    {
+        this(params.getInt("windowbp",0),params.getInt("windowsnps",0),
+                params.getString("unplaced",DEFAULT_UNPLACED),params.getDouble("recall",0.0),
+                params.getString("method",DEFAULT_METHOD));
+    }
+
+    /**
+     * Whether the search is restricted to a window
+     * @return Whether the search is windowed
+     */
+    public boolean isWindowed()
+    {
+        return (windowBP > 0) || (windowSNPs > 0);
+    }
+
+    /**
+     * Whether the search uses the default settings, comparing every snp with
+     * every other snp and measuring LD by Pearson correlation
+     * @return Whether the search is the default
+     */
+    public boolean isDefault()
+    {
+        return !isWindowed() && !isApproximate() && method.equals(DEFAULT_METHOD);
+    }
+
+    /**
+     * Get the correlation LD is measured by
+     * @return The correlation
+     */
+    public Correlation getCorrelation()
+    {
+        switch (method)
+        {
+            case "em":
+                return new EM();
+            case "fastem":
+                return new FastEM();
+            case "pearson":
+            default:
+                return new Pearson();
+        }
+    }
+
+    /**
+     * Whether the search is approximate where it would otherwise compare
+     * snps with every other snp
+     * @return Whether the search is approximate
+     */
+    public boolean isApproximate()
+    {
+        return (recall > 0.0) && (recall < 1.0);
+    }
+
+    /**
+     * Returns the position of the snps in highest LD with every snp
+     * @param corr The correlation used to measure LD
+     * @param data The calls, indexed by snp then sample
+     * @param n Return this number of snps in highest LD
+     * @param positions The position of each snp.  If null, or the search
+     * isn't windowed, every snp is compared with every other (or with its
+     * candidates if the search is approximate).
+     * @return Map from the position of a snp to the position of the n snps in
+     * highest LD with it
+     */
+    public Map<Integer, int[]> topn(Correlation corr, byte[][] data, int n, PositionMeta[] positions)
+    {
+        if (comparesAll(positions))
+        {
+            return corr.topn(data, n);
+        }
+        Set<Integer> all = IntStream.range(0, data.length).boxed().collect(Collectors.toSet());
+        return corr.candidatetopn(data, n, all, candidates(corr, data, n, all, positions));
+    }
+
+    /**
+     * Returns the position of the snps in highest LD with the given snps
+     * @param corr The correlation used to measure LD
+     * @param data The calls, indexed by snp then sample
+     * @param n Return this number of snps in highest LD
+     * @param list The position of the snps to consider
+     * @param positions The position of each snp.  If null, or the search
+     * isn't windowed, every snp is compared with every other (or with its
+     * candidates if the search is approximate).
+     * @return Map from the position of a snp to the position of the n snps in
+     * highest LD with it
+     */
+    public Map<Integer, int[]> limitedtopn(Correlation corr, byte[][] data, int n, Set<Integer> list, PositionMeta[] positions)
+    {
+        if (comparesAll(positions))
+        {
+            return corr.limitedtopn(data, n, list);
+        }
+        return corr.candidatetopn(data, n, list, candidates(corr, data, n, list, positions));
+    }
+
+    /**
+     * Get the estimated recall of the approximate searches made so far, as
+     * the lowest of their estimates.  A search that fell back to an exact
+     * search has a recall of one.
+     * @return The estimated recall, or NaN if no approximate search has been
+     * made (for example if the search isn't approximate or the snps in
+     * highest LD were all read from an LD index)
+     */
+    public synchronized double getEstimatedRecall()
+    {
+        return estimatedRecall;
+    }
+
+    private synchronized void estimated(double achieved)
+    {
+        if (Double.isNaN(estimatedRecall) || (achieved < estimatedRecall))
+        {
+            estimatedRecall = achieved;
+        }
+    }
+
+    //Candidates for each snp, null meaning every snp
+    private IntFunction<int[]> candidates(Correlation corr, byte[][] data, int n, Set<Integer> list, PositionMeta[] positions)
+    {
+        if (!isWindowed() || (positions == null))
+        {
+            return approximate(corr, data, n, list);
+        }
+        Windows windows = new Windows(positions);
+        List<Integer> unwindowed = list.stream().filter(i -> !windows.isPlaced(i)).collect(Collectors.toList());
+        IntFunction<int[]> rest = unwindowed.isEmpty() ? i -> null : approximate(corr, data, n, unwindowed);
+        return i -> windows.isPlaced(i) ? windows.candidates(i) : rest.apply(i);
+    }
+
+    //Candidates from hashing for the given snps, with enough tables to reach
+    //the target recall on a sample of them.  Null (every snp) if the search
+    //isn't approximate.
+    private IntFunction<int[]> approximate(Correlation corr, byte[][] data, int n, Collection<Integer> list)
+    {
+        if (!isApproximate())
+        {
+            return i -> null;
+        }
+
+        int[] targets = list.stream().mapToInt(i -> i).sorted().toArray();
+        if (targets.length == 0)
+        {
+            return i -> null;
+        }
+        Set<Integer> sample = new HashSet<>();
+        for (int k = 0; k < Math.min(SAMPLE, targets.length); k++)
+        {
+            sample.add(targets[(int) ((long) k * targets.length / Math.min(SAMPLE, targets.length))]);
+        }
+        Map<Integer,int[]> exact = corr.candidatetopn(data, n, sample, i -> null);
+
+        //Few enough bits that a key is shared by nearby snps with weak LD,
+        //enough that buckets are not dominated by unrelated snps
+        int bits = Math.max(MIN_BITS, Math.min(MAX_BITS, 31 - Integer.numberOfLeadingZeros(data.length) - 8));
+        int width = n;
+        SimHashCandidates hash = new SimHashCandidates(data, bits, width);
+        hash.addTables(FIRST_TABLES);
+        while (true)
+        {
+            Map<Integer,int[]> approx = corr.candidatetopn(data, n, sample, hash::candidates);
+
+            int found = 0;
+            int total = 0;
+            long candidates = 0;
+            for (int i: sample)
+            {
+                Set<Integer> a = Arrays.stream(approx.get(i)).boxed().collect(Collectors.toSet());
+                for (int j: exact.get(i))
+                {
+                    total++;
+                    if (a.contains(j))
+                    {
+                        found++;
+                    }
+                }
+                candidates += hash.candidates(i).length;
+            }
+            double achieved = (total > 0) ? (double) found / (double) total : 1.0;
+
+            if (achieved >= recall)
+            {
+                Log.brief(String.format("Approximate LD search: %d hash tables, %d candidates per snp, estimated recall %.3f (target %.3f)",
+                        hash.tables(), candidates / sample.size(), achieved, recall));
+                estimated(achieved);
+                break;
+            }
+            //Stop once hashing no longer saves much over an exact search
+            if ((candidates / sample.size() > data.length / 4) || (width >= MAX_WIDTH * n))
+            {
+                Log.brief(String.format("Approximate LD search: could not reach target recall %.3f (estimated %.3f), using an exact search",
+                        recall, achieved));
+                estimated(1.0);
+                return i -> null;
+            }
+            if (hash.tables() < MAX_TABLES)
+            {
+                hash.addTables(hash.tables());
+            }
+            else
+            {
+                width *= 2;
+                hash.setWidth(width);
+            }
+        }
+
+        return hash::candidates;
+    }
+
+    /**
+     * Get the config for the search
+     * @return The config
+     */
+    public ImmutableNode getConfig()
+    {
+        ImmutableNode Iwindowbp = new ImmutableNode.Builder().name("windowbp").value(windowBP).create();
+        ImmutableNode Iwindowsnps = new ImmutableNode.Builder().name("windowsnps").value(windowSNPs).create();
+        ImmutableNode Iunplaced = new ImmutableNode.Builder().name("unplaced").value(unplaced).create();
+        ImmutableNode Irecall = new ImmutableNode.Builder().name("recall").value(recall).create();
+        ImmutableNode Imethod = new ImmutableNode.Builder().name("method").value(method).create();
+
+        ImmutableNode config = new ImmutableNode.Builder().name("ld")
+                .addChild(Iwindowbp)
+                .addChild(Iwindowsnps)
+                .addChild(Iunplaced)
+                .addChild(Irecall)
+                .addChild(Imethod)
+                .create();
+
+        return config;
+    }
+
+    //Whether every snp is compared with every other snp, exactly
+    boolean comparesAll(PositionMeta[] positions)
+    {
+        return (!isWindowed() || (positions == null)) && !isApproximate();
+    }
+
+    //Whether the candidates for a snp depend on which other snps there are,
+    //rather than just on their positions
+    boolean countsSNPs()
+    {
+        return windowSNPs > 0;
+    }
+
+    //Identifies the search settings, e.g. when indexing the results
+    String getKey()
+    {
+        return windowBP + "\t" + windowSNPs + "\t" + unplaced + "\t" + recall;
+    }
+
+    //Snps grouped by chromosome and sorted by position so that the window
+    //around a snp is a contiguous run of its group
+    private class Windows
+    {
+        Windows(PositionMeta[] positions)
+        {
+            bp = new long[positions.length];
+            group = new int[positions.length][];
+            rank = new int[positions.length];
+
+            Map<String,List<Integer>> chroms = new HashMap<>();
+            for (int i = 0; i < positions.length; i++)
+            {
+                String chrom = positions[i].getChrom();
+                Long p = parse(positions[i].getPosition());
+                if ((p != null) && !unplacedPattern.matcher(chrom).matches())
+                {
+                    bp[i] = p;
+                    chroms.computeIfAbsent(chrom, c -> new ArrayList<>()).add(i);
+                }
+            }
+
+            Comparator<Integer> byPosition = Comparator.comparingLong(i -> bp[i]);
+            for (List<Integer> c: chroms.values())
+            {
+                c.sort(byPosition.thenComparingInt(i -> i));
+                int[] g = c.stream().mapToInt(i -> i).toArray();
+                for (int r = 0; r < g.length; r++)
+                {
+                    group[g[r]] = g;
+                    rank[g[r]] = r;
+                }
+            }
+        }
+
+        boolean isPlaced(int i)
+        {
+            return group[i] != null;
+        }
+
+        int[] candidates(int i)
+        {
+            int[] g = group[i];
+            if (g == null)
+            {
+                return null;
+            }
+            int r = rank[i];
+            int lo = r;
+            while ((lo > 0) && inWindow(i, g[lo - 1], r - lo + 1))
+            {
+                lo--;
+            }
+            int hi = r;
+            while ((hi < g.length - 1) && inWindow(i, g[hi + 1], hi + 1 - r))
+            {
+                hi++;
+            }
+            int[] c = new int[hi - lo];
+            int k = 0;
+            for (int j = lo; j <= hi; j++)
+            {
+                if (j != r)
+                {
+                    c[k++] = g[j];
+                }
+            }
+            return c;
+        }
+
+        private boolean inWindow(int i, int j, int snps)
+        {
+            return ((windowSNPs <= 0) || (snps <= windowSNPs)) &&
+                    ((windowBP <= 0) || (Math.abs(bp[j] - bp[i]) <= windowBP));
+        }
+
+        private final long[] bp;
+        private final int[][] group;
+        private final int[] rank;
+    }
+
+    private static Long parse(String position)
+    {
+        try
+        {
+            return Long.parseLong(position);
+        }
+        catch (NumberFormatException ex)
+        {
+            return null;
+        }
+    }
+
+    private final int windowBP;
+    private final int windowSNPs;
+    private final String unplaced;
+    private final double recall;
+    private final String method;
+    private final Pattern unplacedPattern;
+    private double estimatedRecall = Double.NaN;
+
+    //Number of snps the recall of an approximate search is estimated from
+    private static final int SAMPLE = 100;
+    private static final int FIRST_TABLES = 4;
+    private static final int MAX_TABLES = 32;
+    //Maximum candidates per table, as a multiple of the neighbours needed
+    private static final int MAX_WIDTH = 16;
+    private static final int MIN_BITS = 4;
+    private static final int MAX_BITS = 24;
+
+    private static final String DEFAULT_METHOD = "pearson";
+    private static final List<String> METHODS = Arrays.asList("pearson", "em", "fastem");
+
+    private static final String DEFAULT_UNPLACED =
+            "(?i)(chr)?(0|un|unknown|unplaced)([_.].*)?|.*_random|(scaffold|contig|tig).*";
+}
@@ -0,0 +1,339 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+import Exceptions.LDJobException;
+import Utils.Log;
+import Utils.TopHeaps;
+import VCF.PositionMeta;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits finding the snps in highest LD with every snp between independent
+ * processes, e.g. on different nodes of a cluster, which share only a
+ * directory.
+ *
+ * A job is prepared in a directory, which holds the calls (as a GenotypeFile)
+ * and the settings.  Each shard of the job is then run, possibly at the same
+ * time, each comparing its share of the pairs of blocks of snps (see
+ * Correlation.topheaps) and writing the snps in highest LD with every snp that
+ * it found to a file in the job directory.  Once every shard has been run
+ * they are merged into an LD index (see LDIndex) in the index directory given
+ * when the job was prepared, where imputation on the same data finds it.  The
+ * merged index is the same as if the search had been done in one process.
+ *
+ * Only searches that compare every snp with every other snp exactly can be
+ * split into shards.  Windowed and approximate searches are close to linear
+ * in the number of snps so gain little.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class LDShards
+{
+    private LDShards()
+    {
+    }
+
+    /**
+     * Prepares a job
+     * @param job The job directory
+     * @param ld How the snps in highest LD are searched for
+     * @param corr The correlation used to measure LD
+     * @param data The calls, indexed by snp then sample
+     * @param n The number of snps in highest LD that will be asked for
+     * @param positions The position of each snp (may be null)
+     * @param index The directory the merged index is to be written to
+     * @throws LDJobException If the search can't be split or there is a
+     * problem writing the job
+     */
+    public static void prepare(File job, LDSearch ld, Correlation corr, byte[][] data, int n,
+            PositionMeta[] positions, File index) throws LDJobException
+    {
+        if (!ld.comparesAll(positions))
+        {
+            throw new LDJobException("Only LD searches that compare every snp with every other snp "
+                    + "(not windowed or approximate) can be split into shards");
+        }
+        try
+        {
+            Files.createDirectories(job.toPath());
+            GenotypeFile.write(new File(job, CALLS), data);
+            File temp = new File(job, SETTINGS + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(LDIndex.key(ld, corr, data, n, positions));
+                out.writeUTF(corr.getClass().getName());
+                out.writeInt(LDIndex.candidates(n));
+                out.writeInt(BLOCK);
+                //Absolute so the merge finds it whatever directory it is run from
+                out.writeUTF(index.getAbsolutePath());
+            }
+            Files.move(temp.toPath(), new File(job, SETTINGS).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex)
+        {
+            throw new LDJobException("Problem writing the LD job to " + job, ex);
+        }
+        Log.debug("Prepared LD job " + job + " for " + data.length + " snps");
+    }
+
+    /**
+     * Runs a shard of a job
+     * @param job The job directory
+     * @param shard The shard, from 1 to the number of shards
+     * @param shards The number of shards
+     * @throws LDJobException If the job can't be read or there is a problem
+     * writing the shard's results
+     */
+    public static void shard(File job, int shard, int shards) throws LDJobException
+    {
+        if ((shards < 1) || (shard < 1) || (shard > shards))
+        {
+            throw new LDJobException("The shard must be between 1 and the number of shards");
+        }
+        Settings settings = new Settings(job);
+        Correlation corr;
+        try
+        {
+            corr = Class.forName(settings.correlation).asSubclass(Correlation.class)
+                    .getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | ClassCastException ex)
+        {
+            throw new LDJobException("Unknown correlation " + settings.correlation + " in LD job " + job, ex);
+        }
+
+        File f = part(job, shard, shards);
+        File temp = new File(job, f.getName() + ".tmp");
+        try (GenotypeFile file = new GenotypeFile(new File(job, CALLS)))
+        {
+            TopHeaps tq = corr.topheaps(file, settings.n, settings.block, shard - 1, shards);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                out.writeInt(PART_MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(settings.key);
+                out.writeInt(file.getSNPs());
+                out.writeInt(settings.n);
+                int[] entries = new int[settings.n];
+                double[] values = new double[settings.n];
+                for (int i = 0; i < file.getSNPs(); i++)
+                {
+                    int s = tq.getOrdered(i, entries, values);
+                    out.writeInt(s);
+                    for (int j = 0; j < s; j++)
+                    {
+                        out.writeInt(entries[j]);
+                        out.writeDouble(values[j]);
+                    }
+                }
+            }
+            //Replace in one step so a merge never sees half a file
+            Files.move(temp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex)
+        {
+            temp.delete();
+            throw new LDJobException("Problem running shard " + shard + " of " + shards + " of LD job " + job, ex);
+        }
+        Log.debug("Written LD shard " + f);
+    }
+
+    /**
+     * Merges the shards of a job into an LD index.  Every shard of the job
+     * must have been run, with the same number of shards.
+     * @param job The job directory
+     * @throws LDJobException If a shard is missing or from a different job or
+     * there is a problem reading the shards or writing the index
+     */
+    public static void merge(File job) throws LDJobException
+    {
+        Settings settings = new Settings(job);
+
+        //Shard files by number of shards then shard
+        Map<Integer,Map<Integer,File>> found = new TreeMap<>();
+        File[] files = job.listFiles();
+        if (files != null)
+        {
+            for (File f: files)
+            {
+                Matcher m = PART.matcher(f.getName());
+                if (m.matches())
+                {
+                    found.computeIfAbsent(Integer.parseInt(m.group(2)), s -> new TreeMap<>())
+                            .put(Integer.parseInt(m.group(1)), f);
+                }
+            }
+        }
+        if (found.isEmpty())
+        {
+            throw new LDJobException("No shards have been run for LD job " + job);
+        }
+        if (found.size() > 1)
+        {
+            throw new LDJobException("LD job " + job + " has shards from runs with different numbers of shards "
+                    + found.keySet() + ".  Remove those from the unwanted runs.");
+        }
+        int shards = found.keySet().iterator().next();
+        TreeSet<Integer> missing = new TreeSet<>();
+        for (int s = 1; s <= shards; s++)
+        {
+            if (!found.get(shards).containsKey(s))
+            {
+                missing.add(s);
+            }
+        }
+        if (!missing.isEmpty())
+        {
+            throw new LDJobException("Shards " + missing + " of " + shards + " of LD job " + job + " have not been run");
+        }
+
+        List<DataInputStream> ins = new ArrayList<>();
+        try
+        {
+            int snps = -1;
+            for (File f: found.get(shards).values())
+            {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+                ins.add(in);
+                if ((in.readInt() != PART_MAGIC) || (in.readInt() != VERSION) ||
+                        !in.readUTF().equals(settings.key))
+                {
+                    throw new LDJobException(f + " is not a shard of the current LD job " + job
+                            + ".  Has the job been prepared again since it was run?");
+                }
+                int s = in.readInt();
+                if (((snps >= 0) && (s != snps)) || (in.readInt() != settings.n))
+                {
+                    throw new LDJobException(f + " does not match the other shards of LD job " + job);
+                }
+                snps = s;
+            }
+
+            //Each shard's top snps for a snp are read in turn and added to
+            //the same heap, which keeps the same top snps whatever order
+            //they're added in
+            int[][] rows = new int[snps][];
+            for (int i = 0; i < snps; i++)
+            {
+                TopHeaps tq = new TopHeaps(1, settings.n);
+                for (DataInputStream in: ins)
+                {
+                    int s = in.readInt();
+                    for (int j = 0; j < s; j++)
+                    {
+                        int e = in.readInt();
+                        tq.add(0, e, in.readDouble());
+                    }
+                }
+                //As in LDIndex the list is padded if there are fewer snps
+                //to compare with than were asked for
+                int[] row = tq.getList(0);
+                rows[i] = (row.length > snps - 1) ? Arrays.copyOf(row, snps - 1) : row;
+            }
+
+            LDIndex.write(settings.index, settings.key, rows);
+        }
+        catch (IOException ex)
+        {
+            throw new LDJobException("Problem merging the shards of LD job " + job, ex);
+        }
+        finally
+        {
+            for (DataInputStream in: ins)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException ex)
+                {
+                    //Nothing more can be done and the merge is unaffected
+                }
+            }
+        }
+        Log.debug("Merged " + shards + " LD shards into an index in " + settings.index);
+    }
+
+    private static File part(File job, int shard, int shards)
+    {
+        return new File(job, "shard-" + shard + "-of-" + shards + PART_SUFFIX);
+    }
+
+    //The settings a job was prepared with
+    private static class Settings
+    {
+        Settings(File job) throws LDJobException
+        {
+            File f = new File(job, SETTINGS);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f))))
+            {
+                if ((in.readInt() != MAGIC) || (in.readInt() != VERSION))
+                {
+                    throw new LDJobException(job + " is not an LD job");
+                }
+                key = in.readUTF();
+                correlation = in.readUTF();
+                n = in.readInt();
+                block = in.readInt();
+                index = new File(in.readUTF());
+            }
+            catch (IOException ex)
+            {
+                throw new LDJobException("Could not read LD job " + job + ".  Has it been prepared?", ex);
+            }
+        }
+
+        final String key;
+        final String correlation;
+        final int n;
+        final int block;
+        final File index;
+    }
+
+    private static final String CALLS = "calls.geno";
+    private static final String SETTINGS = "job";
+    private static final String PART_SUFFIX = ".ldpart";
+    private static final Pattern PART = Pattern.compile("shard-(\\d+)-of-(\\d+)\\.ldpart");
+    private static final int MAGIC = 0x4c444a42;
+    private static final int PART_MAGIC = 0x4c445350;
+    private static final int VERSION = 1;
+    //Snps per block.  Small enough to keep memory use low and give many pairs
+    //of blocks to split between shards.
+    private static final int BLOCK = 4096;
+}
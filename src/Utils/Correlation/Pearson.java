@@ -18,7 +18,11 @@
 package Utils.Correlation;
 
 /**
- * Calculates LD as a simple Pearson correlation
+ * Calculates LD as a simple Pearson correlation.  When correlations are
+ * calculated between many pairs of diploid snps the calls are stored as bit
+ * planes (see GenotypePlanes) and the table of genotype counts for each pair
+ * found by counting bits.  The correlation is then calculated from the table
+ * exactly as for a single pair.
  * @author Daniel Money
  */
 public class Pearson extends Correlation
@@ -26,25 +30,55 @@ public class Pearson extends Correlation
     @Override
     public double calculate(byte[] d1, byte[] d2)
     {
-        int[][] counts = new int[3][3];
-        int c = 0;
+        int[] counts = new int[9];
         for (int i = 0; i < d1.length; i++)
         {
             if ((d1[i] >= 0) && (d2[i] >= 0))
             {
-                counts[d1[i]][d2[i]] ++;
-                c ++;
+                if ((d1[i] > 2) || (d2[i] > 2))
+                {
+                    return calculateDosages(d1, d2);
+                }
+                counts[3 * d1[i] + d2[i]] ++;
             }
             //THIS MAY BE AN ERROR
             //c++;
         }
         
-        int tota = counts[1][0] + counts[1][1] + counts[1][2] +
-                2 * (counts[2][0] + counts[2][1] + counts[2][2]);
+        return fromCounts(counts);
+    }
+    
+    @Override
+    protected Prepared prepare(byte[][] data)
+    {
+        if (!GenotypePlanes.canStore(data))
+        {
+            return super.prepare(data);
+        }
+        GenotypePlanes planes = new GenotypePlanes(data);
+        return (i,j) ->
+        {
+            int[] counts = new int[9];
+            planes.counts(i, j, counts);
+            return fromCounts(counts);
+        };
+    }
+    
+    //Counts are indexed by 3 * first genotype + second genotype
+    private static double fromCounts(int[] counts)
+    {
+        int c = 0;
+        for (int k = 0; k < 9; k++)
+        {
+            c += counts[k];
+        }
+        
+        int tota = counts[3] + counts[4] + counts[5] +
+                2 * (counts[6] + counts[7] + counts[8]);
         double meana = (double) tota / (double) c;
         
-        int totb = counts[0][1] + counts[1][1] + counts[2][1] +
-                2 * (counts[0][2] + counts[1][2] + counts[2][2]);
+        int totb = counts[1] + counts[4] + counts[7] +
+                2 * (counts[2] + counts[5] + counts[8]);
         double meanb = (double) totb / (double) c;
         
         double xy = 0.0;
@@ -55,9 +89,9 @@ public class Pearson extends Correlation
         {
             for (int j = 0; j < 3; j++)
             {
-                xy += (double) counts[i][j] * ((double) i - meana) * ((double) j - meanb);
-                xx += (double) counts[i][j] * ((double) i - meana) * ((double) i - meana);
-                yy += (double) counts[i][j] * ((double) j - meanb) * ((double) j - meanb);
+                xy += (double) counts[3 * i + j] * ((double) i - meana) * ((double) j - meanb);
+                xx += (double) counts[3 * i + j] * ((double) i - meana) * ((double) i - meana);
+                yy += (double) counts[3 * i + j] * ((double) j - meanb) * ((double) j - meanb);
             }
         }
         
@@ -73,4 +107,46 @@ public class Pearson extends Correlation
         
         return (xy * xy) / (xx * yy);
     }
+    
+    //For genotypes from a ploidy above two, where dosages can be above 2.  Only
+    //used if such a dosage is present so diploid results are unchanged.
+    private static double calculateDosages(byte[] d1, byte[] d2)
+    {
+        long c = 0;
+        long tota = 0;
+        long totb = 0;
+        for (int i = 0; i < d1.length; i++)
+        {
+            if ((d1[i] >= 0) && (d2[i] >= 0))
+            {
+                tota += d1[i];
+                totb += d2[i];
+                c++;
+            }
+        }
+        double meana = (double) tota / (double) c;
+        double meanb = (double) totb / (double) c;
+        
+        double xy = 0.0;
+        double xx = 0.0;
+        double yy = 0.0;
+        for (int i = 0; i < d1.length; i++)
+        {
+            if ((d1[i] >= 0) && (d2[i] >= 0))
+            {
+                double a = (double) d1[i] - meana;
+                double b = (double) d2[i] - meanb;
+                xy += a * b;
+                xx += a * a;
+                yy += b * b;
+            }
+        }
+        
+        if ((xx == 0.0) || (yy == 0.0))
+        {
+            return 0;
+        }
+        
+        return (xy * xy) / (xx * yy);
+    }
 }
@@ -0,0 +1,248 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.Correlation;
+
+import Utils.Parallel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Finds candidate snps likely to be in high LD with each snp using locality
+ * sensitive hashing, so that correlations only need to be calculated with the
+ * candidates rather than every snp.
+ *
+ * Each snp's calls are centred on their mean (with missing calls treated as
+ * the mean) and projected onto random hyperplanes.  The signs of a number of
+ * projections make up a key, and snps with the same key in one of several
+ * hash tables are candidates for each other.  The angle between two centred
+ * snps is close to the arc cosine of their correlation, so highly correlated
+ * snps are likely to agree on every sign.  Since LD is measured by r squared
+ * a key and its complement (every sign flipped) are treated as the same key,
+ * so strongly negatively correlated snps are also candidates.
+ *
+ * Within a table snps are ordered by key then position, so if many snps share
+ * a key (e.g. monomorphic snps) only the snps nearest in position are used as
+ * candidates.
+ *
+ * More tables find more of the true neighbours at the cost of more
+ * candidates.  Tables can be added after creation, e.g. until a required
+ * recall is reached.  Results are reproducible as each table's hyperplanes
+ * are generated from a fixed seed.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class SimHashCandidates
+{
+
+    /**
+     * Constructor.  No tables are created.
+     * @param data The calls, indexed by snp then sample
+     * @param bits The number of projections in each key (at most 31)
+     * @param width The maximum number of candidates taken from each table
+     * for a snp
+     */
+    public SimHashCandidates(byte[][] data, int bits, int width)
+    {
+        this.data = data;
+        this.bits = bits;
+        setWidth(width);
+        samples = (data.length > 0) ? data[0].length : 0;
+        words = (samples + 63) / 64;
+        keys = new int[0][];
+        sorted = new long[0][];
+    }
+
+    /**
+     * Adds hash tables
+     * @param count The number of tables to add
+     */
+    public void addTables(int count)
+    {
+        int first = keys.length;
+        int total = first + count;
+        int mask = (int) ((1L << bits) - 1);
+
+        //The hyperplanes for each projection of each new table, with a set
+        //bit meaning +1 and an unset bit -1
+        long[][] planes = new long[count * bits][words];
+        for (int t = 0; t < count; t++)
+        {
+            Random r = new Random(SEED + first + t);
+            for (int b = 0; b < bits; b++)
+            {
+                long[] p = planes[t * bits + b];
+                for (int w = 0; w < words; w++)
+                {
+                    p[w] = r.nextLong();
+                }
+            }
+        }
+
+        int[][] newKeys = new int[count][data.length];
+        Parallel.forEach(data.length, i ->
+        {
+            byte[] d = data[i];
+            int max = 0;
+            for (byte b: d)
+            {
+                max = Math.max(max, b);
+            }
+            //One plane of the samples that are present plus one per bit of
+            //the dosage
+            int dosageBits = 32 - Integer.numberOfLeadingZeros(max);
+            long[] present = new long[words];
+            long[][] dosage = new long[dosageBits][words];
+            long sum = 0;
+            int n = 0;
+            for (int s = 0; s < d.length; s++)
+            {
+                if (d[s] >= 0)
+                {
+                    present[s >>> 6] |= 1L << s;
+                    for (int k = 0; k < dosageBits; k++)
+                    {
+                        if ((d[s] & (1 << k)) != 0)
+                        {
+                            dosage[k][s >>> 6] |= 1L << s;
+                        }
+                    }
+                    sum += d[s];
+                    n++;
+                }
+            }
+            double mean = (n > 0) ? (double) sum / (double) n : 0.0;
+
+            for (int t = 0; t < count; t++)
+            {
+                int key = 0;
+                for (int b = 0; b < bits; b++)
+                {
+                    long[] p = planes[t * bits + b];
+                    //Sum of the plane's signs over the samples that are
+                    //present, weighted by the dosage and then by one
+                    long weighted = 0;
+                    for (int k = 0; k < dosageBits; k++)
+                    {
+                        weighted += signed(dosage[k], p) << k;
+                    }
+                    double projection = weighted - mean * signed(present, p);
+                    if (projection > 0.0)
+                    {
+                        key |= 1 << b;
+                    }
+                }
+                newKeys[t][i] = Math.min(key, ~key & mask);
+            }
+        });
+
+        long[][] newSorted = new long[count][];
+        for (int t = 0; t < count; t++)
+        {
+            long[] s = new long[data.length];
+            for (int i = 0; i < data.length; i++)
+            {
+                s[i] = ((long) newKeys[t][i] << 32) | i;
+            }
+            Arrays.parallelSort(s);
+            newSorted[t] = s;
+        }
+
+        keys = Arrays.copyOf(keys, total);
+        sorted = Arrays.copyOf(sorted, total);
+        System.arraycopy(newKeys, 0, keys, first, count);
+        System.arraycopy(newSorted, 0, sorted, first, count);
+    }
+
+    /**
+     * Sets the maximum number of candidates taken from each table for a snp.
+     * If more snps share a key the nearest in position are taken.
+     * @param width The maximum number of candidates
+     */
+    public void setWidth(int width)
+    {
+        half = Math.max(1, width / 2);
+    }
+
+    /**
+     * Get the number of tables
+     * @return The number of tables
+     */
+    public int tables()
+    {
+        return keys.length;
+    }
+
+    /**
+     * Returns the candidate snps for a snp, that is the snps sharing a key
+     * with it in any table
+     * @param i The position of the snp
+     * @return The positions of the candidates, in order
+     */
+    public int[] candidates(int i)
+    {
+        int[] c = new int[keys.length * 2 * half];
+        int k = 0;
+        for (int t = 0; t < keys.length; t++)
+        {
+            long[] s = sorted[t];
+            long key = keys[t][i];
+            int p = Arrays.binarySearch(s, (key << 32) | i);
+            for (int j = p - 1; (j >= 0) && (j >= p - half) && ((s[j] >>> 32) == key); j--)
+            {
+                c[k++] = (int) s[j];
+            }
+            for (int j = p + 1; (j < s.length) && (j <= p + half) && ((s[j] >>> 32) == key); j++)
+            {
+                c[k++] = (int) s[j];
+            }
+        }
+
+        Arrays.sort(c, 0, k);
+        int u = 0;
+        for (int j = 0; j < k; j++)
+        {
+            if ((u == 0) || (c[j] != c[u - 1]))
+            {
+                c[u++] = c[j];
+            }
+        }
+        return Arrays.copyOf(c, u);
+    }
+
+    //Sum over the set bits of a plane of +1 where the hyperplane bit is set
+    //and -1 where it isn't
+    private long signed(long[] plane, long[] hyperplane)
+    {
+        long s = 0;
+        for (int w = 0; w < words; w++)
+        {
+            s += 2 * Long.bitCount(plane[w] & hyperplane[w]) - Long.bitCount(plane[w]);
+        }
+        return s;
+    }
+
+    private final byte[][] data;
+    private final int bits;
+    private int half;
+    private final int samples;
+    private final int words;
+    private int[][] keys;
+    private long[][] sorted;
+
+    private static final long SEED = 1293847561L;
+}
@@ -0,0 +1,587 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils;
+
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * A table of genotype probabilities for every sample / snp combination.  The
+ * probabilities for each genotype (three for diploids, one per allele dosage,
+ * i.e. ploidy + 1, in general) are stored next to each other in contiguous
+ * arrays rather than as one small array per genotype.  Tables too large for a
+ * single array are split into pages, each holding a whole number of samples.
+ * 
+ * Probabilities can be stored at different precisions (see Precision).  New
+ * tables should be created using create, which uses the precision set for
+ * the run.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public abstract class GenotypeProbabilities
+{
+
+    /**
+     * Constructor
+     * @param samples The number of samples
+     * @param snps The number of snps
+     * @param genotypes The number of genotypes (ploidy + 1) probabilities are
+     * stored for at each sample / snp combination
+     */
+    protected GenotypeProbabilities(int samples, int snps, int genotypes)
+    {
+        this.samples = samples;
+        this.snps = snps;
+        this.genotypes = genotypes;
+
+        long perSample = (long) genotypes * snps;
+        if (perSample > MAX_PAGE)
+        {
+            throw new IllegalArgumentException("Too many snps for a probability table");
+        }
+        samplesPerPage = (perSample == 0) ? Math.max(samples, 1) : (int) Math.max(1, MAX_PAGE / perSample);
+        numberPages = (samples + samplesPerPage - 1) / samplesPerPage;
+    }
+
+    /**
+     * Creates a table of diploid genotype probabilities, with all
+     * probabilities set to zero, using the precision set for the run
+     * @param samples The number of samples
+     * @param snps The number of snps
+     * @return The table
+     */
+    public static GenotypeProbabilities create(int samples, int snps)
+    {
+        return create(samples, snps, DIPLOID);
+    }
+
+    /**
+     * Creates a table, with all probabilities set to zero, using the precision
+     * set for the run
+     * @param samples The number of samples
+     * @param snps The number of snps
+     * @param genotypes The number of genotypes (ploidy + 1)
+     * @return The table
+     */
+    public static GenotypeProbabilities create(int samples, int snps, int genotypes)
+    {
+        return create(samples, snps, genotypes, precision);
+    }
+
+    /**
+     * Creates a table of diploid genotype probabilities, with all
+     * probabilities set to zero
+     * @param samples The number of samples
+     * @param snps The number of snps
+     * @param precision The precision probabilities are stored at
+     * @return The table
+     */
+    public static GenotypeProbabilities create(int samples, int snps, Precision precision)
+    {
+        return create(samples, snps, DIPLOID, precision);
+    }
+
+    /**
+     * Creates a table, with all probabilities set to zero
+     * @param samples The number of samples
+     * @param snps The number of snps
+     * @param genotypes The number of genotypes (ploidy + 1)
+     * @param precision The precision probabilities are stored at
+     * @return The table
+     */
+    public static GenotypeProbabilities create(int samples, int snps, int genotypes, Precision precision)
+    {
+        switch (precision)
+        {
+            case FLOAT:
+                return new FloatProbabilities(samples, snps, genotypes);
+            case SHORT:
+                return new ShortProbabilities(samples, snps, genotypes);
+            case BYTE:
+                return new ByteProbabilities(samples, snps, genotypes);
+            default:
+                return new DoubleProbabilities(samples, snps, genotypes);
+        }
+    }
+
+    /**
+     * Creates a table from an array of probabilities
+     * @param probs The probabilities, indexed by sample, snp and then genotype
+     * @return The table
+     */
+    public static GenotypeProbabilities fromArray(double[][][] probs)
+    {
+        int snps = (probs.length > 0) ? probs[0].length : 0;
+        int genotypes = (snps > 0) ? probs[0][0].length : DIPLOID;
+        GenotypeProbabilities gp = create(probs.length, snps, genotypes);
+        for (int i = 0; i < probs.length; i++)
+        {
+            for (int j = 0; j < snps; j++)
+            {
+                gp.setSingle(i, j, probs[i][j]);
+            }
+        }
+        return gp;
+    }
+
+    /**
+     * Converts the table to an array of probabilities
+     * @return The probabilities, indexed by sample, snp and then genotype
+     */
+    public double[][][] toArray()
+    {
+        double[][][] probs = new double[samples][snps][];
+        for (int i = 0; i < samples; i++)
+        {
+            for (int j = 0; j < snps; j++)
+            {
+                probs[i][j] = getSingle(i, j);
+            }
+        }
+        return probs;
+    }
+
+    /**
+     * Get the number of samples
+     * @return The number of samples
+     */
+    public int getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * Get the number of snps
+     * @return The number of snps
+     */
+    public int getSNPs()
+    {
+        return snps;
+    }
+
+    /**
+     * Get the number of genotypes probabilities are stored for at each
+     * sample / snp combination, i.e. ploidy + 1
+     * @return The number of genotypes
+     */
+    public int getGenotypes()
+    {
+        return genotypes;
+    }
+
+    /**
+     * Get the precision probabilities are stored at
+     * @return The precision
+     */
+    public abstract Precision getPrecision();
+
+    /**
+     * Get the probability of a single genotype
+     * @param sample The sample
+     * @param snp The snp
+     * @param genotype The genotype (the alt allele dosage, 0 to ploidy)
+     * @return The probability
+     */
+    public abstract double get(int sample, int snp, int genotype);
+
+    /**
+     * Set the probability of a single genotype.  Depending on the precision
+     * the value stored may be rounded.  Any stored most probable genotypes
+     * (see getCalls) are discarded as they may no longer be correct.
+     * @param sample The sample
+     * @param snp The snp
+     * @param genotype The genotype (the alt allele dosage, 0 to ploidy)
+     * @param value The probability
+     */
+    public void set(int sample, int snp, int genotype, double value)
+    {
+        calls = null;
+        store(sample, snp, genotype, value);
+    }
+
+    /**
+     * Stores the probability of a single genotype at the table's precision
+     * @param sample The sample
+     * @param snp The snp
+     * @param genotype The genotype (the alt allele dosage, 0 to ploidy)
+     * @param value The probability
+     */
+    protected abstract void store(int sample, int snp, int genotype, double value);
+
+    /**
+     * Get the probabilities for a single sample / snp combination
+     * @param sample The sample
+     * @param snp The snp
+     * @return The probability of each genotype (size ploidy + 1)
+     */
+    public double[] getSingle(int sample, int snp)
+    {
+        double[] probs = new double[genotypes];
+        getSingle(sample, snp, probs, 0);
+        return probs;
+    }
+
+    /**
+     * Copies the probabilities for a single sample / snp combination into an
+     * existing array
+     * @param sample The sample
+     * @param snp The snp
+     * @param probs The array to copy into
+     * @param offset Where in the array to copy the first probability to
+     */
+    public void getSingle(int sample, int snp, double[] probs, int offset)
+    {
+        for (int k = 0; k < genotypes; k++)
+        {
+            probs[offset + k] = get(sample, snp, k);
+        }
+    }
+
+    /**
+     * Set the probabilities for a single sample / snp combination
+     * @param sample The sample
+     * @param snp The snp
+     * @param probs The probability of each genotype (size ploidy + 1)
+     */
+    public void setSingle(int sample, int snp, double[] probs)
+    {
+        setSingle(sample, snp, probs, 0);
+    }
+
+    /**
+     * Set the probabilities for a single sample / snp combination from part
+     * of an array
+     * @param sample The sample
+     * @param snp The snp
+     * @param probs The array holding the probabilities
+     * @param offset Where in the array the first probability is
+     */
+    public void setSingle(int sample, int snp, double[] probs, int offset)
+    {
+        for (int k = 0; k < genotypes; k++)
+        {
+            set(sample, snp, k, probs[offset + k]);
+        }
+    }
+
+    /**
+     * Get the most probable genotype for every sample / snp combination if
+     * these were found when the table was filled (as done by Caller.call).
+     * They are found from the probabilities before any rounding to the
+     * table's precision.
+     * @return The most probable genotypes, indexed by sample and then snp (-1
+     * where no genotype has a probability above zero), or null if they are not
+     * available
+     */
+    public byte[][] getCalls()
+    {
+        return calls;
+    }
+
+    /**
+     * Stores the most probable genotype for every sample / snp combination
+     * alongside the probabilities.  Should only be called once the table has
+     * been filled; setting any probability afterwards discards them.
+     * @param calls The most probable genotypes, indexed by sample and then snp
+     * (-1 where no genotype has a probability above zero)
+     */
+    public void setCalls(byte[][] calls)
+    {
+        this.calls = calls;
+    }
+
+    /**
+     * Set the precision new tables are created with for this run
+     * @param precision The precision
+     */
+    public static void setPrecision(Precision precision)
+    {
+        GenotypeProbabilities.precision = precision;
+    }
+
+    /**
+     * Set the precision new tables are created with for this run from its name
+     * as used in config files
+     * @param name The name of the precision
+     */
+    public static void setPrecision(String name)
+    {
+        setPrecision(Precision.fromName(name));
+    }
+
+    /**
+     * Get the precision new tables are created with for this run
+     * @return The precision
+     */
+    public static Precision getRunPrecision()
+    {
+        return precision;
+    }
+
+    /**
+     * Get the config for a precision
+     * @param precision The precision
+     * @return The config
+     */
+    public static ImmutableNode getConfig(Precision precision)
+    {
+        return new ImmutableNode.Builder().name("precision").value(precision.getName()).create();
+    }
+
+    /**
+     * The page a sample is stored in
+     * @param sample The sample
+     * @return The page
+     */
+    protected int page(int sample)
+    {
+        return sample / samplesPerPage;
+    }
+
+    /**
+     * Position of the first probability for a sample / snp combination
+     * within its page
+     * @param sample The sample
+     * @param snp The snp
+     * @return The position
+     */
+    protected int offset(int sample, int snp)
+    {
+        return ((sample % samplesPerPage) * snps + snp) * genotypes;
+    }
+
+    /**
+     * The number of values stored in a page
+     * @param page The page
+     * @return The number of values
+     */
+    protected int pageSize(int page)
+    {
+        int inPage = Math.min(samplesPerPage, samples - page * samplesPerPage);
+        return inPage * snps * genotypes;
+    }
+
+    /**
+     * The number of pages
+     */
+    protected final int numberPages;
+
+    private final int samples;
+    private final int snps;
+    private final int genotypes;
+    private final int samplesPerPage;
+    private byte[][] calls = null;
+
+    private static volatile Precision precision = Precision.DOUBLE;
+
+    private static final long MAX_PAGE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The number of genotypes for a diploid
+     */
+    public static final int DIPLOID = 3;
+
+    /**
+     * The precision at which probabilities are stored
+     */
+    public enum Precision
+    {
+
+        /**
+         * Stored as doubles
+         */
+        DOUBLE("double"),
+
+        /**
+         * Stored as floats
+         */
+        FLOAT("float"),
+
+        /**
+         * Stored as 16 bit fixed point values, i.e. rounded to the nearest
+         * 1/65535
+         */
+        SHORT("16bit"),
+
+        /**
+         * Stored as 8 bit fixed point values, i.e. rounded to the nearest
+         * 1/255.  Probabilities may differ in the third decimal place.
+         */
+        BYTE("8bit");
+
+        Precision(String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Get the name of the precision as used in config files
+         * @return The name
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Get a precision from its name as used in config files
+         * @param name The name
+         * @return The precision
+         */
+        public static Precision fromName(String name)
+        {
+            for (Precision p: values())
+            {
+                if (p.name.equalsIgnoreCase(name))
+                {
+                    return p;
+                }
+            }
+            throw new IllegalArgumentException("Unknown precision: " + name);
+        }
+
+        private final String name;
+    }
+
+    private static class DoubleProbabilities extends GenotypeProbabilities
+    {
+        DoubleProbabilities(int samples, int snps, int genotypes)
+        {
+            super(samples, snps, genotypes);
+            pages = new double[numberPages][];
+            for (int p = 0; p < numberPages; p++)
+            {
+                pages[p] = new double[pageSize(p)];
+            }
+        }
+
+        public Precision getPrecision()
+        {
+            return Precision.DOUBLE;
+        }
+
+        public double get(int sample, int snp, int genotype)
+        {
+            return pages[page(sample)][offset(sample, snp) + genotype];
+        }
+
+        protected void store(int sample, int snp, int genotype, double value)
+        {
+            pages[page(sample)][offset(sample, snp) + genotype] = value;
+        }
+
+        private final double[][] pages;
+    }
+
+    private static class FloatProbabilities extends GenotypeProbabilities
+    {
+        FloatProbabilities(int samples, int snps, int genotypes)
+        {
+            super(samples, snps, genotypes);
+            pages = new float[numberPages][];
+            for (int p = 0; p < numberPages; p++)
+            {
+                pages[p] = new float[pageSize(p)];
+            }
+        }
+
+        public Precision getPrecision()
+        {
+            return Precision.FLOAT;
+        }
+
+        public double get(int sample, int snp, int genotype)
+        {
+            return pages[page(sample)][offset(sample, snp) + genotype];
+        }
+
+        protected void store(int sample, int snp, int genotype, double value)
+        {
+            pages[page(sample)][offset(sample, snp) + genotype] = (float) value;
+        }
+
+        private final float[][] pages;
+    }
+
+    //Values outside of [0,1] are clamped, NaNs are stored as zero
+    private static class ShortProbabilities extends GenotypeProbabilities
+    {
+        ShortProbabilities(int samples, int snps, int genotypes)
+        {
+            super(samples, snps, genotypes);
+            pages = new char[numberPages][];
+            for (int p = 0; p < numberPages; p++)
+            {
+                pages[p] = new char[pageSize(p)];
+            }
+        }
+
+        public Precision getPrecision()
+        {
+            return Precision.SHORT;
+        }
+
+        public double get(int sample, int snp, int genotype)
+        {
+            return pages[page(sample)][offset(sample, snp) + genotype] / SCALE;
+        }
+
+        protected void store(int sample, int snp, int genotype, double value)
+        {
+            pages[page(sample)][offset(sample, snp) + genotype] =
+                    (char) Math.round(Math.min(1.0, Math.max(0.0, value)) * SCALE);
+        }
+
+        private final char[][] pages;
+
+        private static final double SCALE = 65535.0;
+    }
+
+    //Values outside of [0,1] are clamped, NaNs are stored as zero
+    private static class ByteProbabilities extends GenotypeProbabilities
+    {
+        ByteProbabilities(int samples, int snps, int genotypes)
+        {
+            super(samples, snps, genotypes);
+            pages = new byte[numberPages][];
+            for (int p = 0; p < numberPages; p++)
+            {
+                pages[p] = new byte[pageSize(p)];
+            }
+        }
+
+        public Precision getPrecision()
+        {
+            return Precision.BYTE;
+        }
+
+        public double get(int sample, int snp, int genotype)
+        {
+            return (pages[page(sample)][offset(sample, snp) + genotype] & 0xFF) / SCALE;
+        }
+
+        protected void store(int sample, int snp, int genotype, double value)
+        {
+            pages[page(sample)][offset(sample, snp) + genotype] =
+                    (byte) Math.round(Math.min(1.0, Math.max(0.0, value)) * SCALE);
+        }
+
+        private final byte[][] pages;
+
+        private static final double SCALE = 255.0;
+    }
+}
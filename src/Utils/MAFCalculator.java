@@ -44,7 +44,21 @@ public class MAFCalculator
         this.minDepth = minDepth;
         this.maxDepth = maxDepth;
         this.caller = caller;
+        ploidy = caller.getPloidy();
         dm = new DepthMapper();
+        
+        //Dosage only depends on the two read counts so precompute it for all
+        //read counts up to a maximum depth.  Table is indexed by total depth
+        //then alt count.
+        tableDepth = Math.min(maxDepth, MAX_TABLE_DEPTH);
+        dosages = new double[(tableDepth + 1) * (tableDepth + 2) / 2];
+        for (int t = 0; t <= tableDepth; t++)
+        {
+            for (int a = 0; a <= t; a++)
+            {
+                dosages[index(t, a)] = getDosage(new int[]{t - a, a});
+            }
+        }
     }
 
     /**
@@ -75,7 +89,7 @@ public class MAFCalculator
             int trc = r[0] + r[1];
             if ((trc >= minDepth) && (trc <= maxDepth))
             {
-                t += getDosage(r);
+                t += dosage(r, trc);
                 c++;
             }
         }
@@ -91,7 +105,7 @@ public class MAFCalculator
         }
 
         //Convert average dose to allele freq
-        double m = d / 2.0;
+        double m = d / ploidy;
 
         return m;
     }
@@ -111,7 +125,7 @@ public class MAFCalculator
             int trc = r[0] + r[1];
             if ((trc >= minDepth) && (trc <= maxDepth))
             {
-                t += getDosage(r);
+                t += dosage(r, trc);
                 c++;
             }
         }
@@ -127,15 +141,77 @@ public class MAFCalculator
         }
 
         //Convert average dose to allele freq
-        double m = d / 2.0;
+        double m = d / ploidy;
 
         return m;
     }
 
+    /**
+     * Calculates the minor allele frequency for every position.  Positions
+     * are calculated in parallel.
+     * @param reads Read counts indexed by sample then position (third dimension
+     * of size two to represent the two allele read counts)
+     * @return The minor allele frequency of each position
+     */
+    public double[] maf(int[][][] reads)
+    {
+        int snps = (reads.length > 0) ? reads[0].length : 0;
+        double[] mafs = new double[snps];
+        Parallel.forEach(snps, j ->
+        {
+            double t = 0.0;
+            double c = 0.0;
+
+            for (int[][] sample: reads)
+            {
+                int[] r = sample[j];
+                int trc = r[0] + r[1];
+                if ((trc >= minDepth) && (trc <= maxDepth))
+                {
+                    t += dosage(r, trc);
+                    c++;
+                }
+            }
+
+            double d;
+            if (c > 0)
+            {
+                d = t/c;
+            }
+            else
+            {
+                d = 0.0;
+            }
+
+            mafs[j] = d / ploidy;
+        });
+        return mafs;
+    }
+
+    private double dosage(int[] r, int trc)
+    {
+        if (trc <= tableDepth)
+        {
+            return dosages[index(trc, r[1])];
+        }
+        return getDosage(r);
+    }
+    
     private double getDosage(int[] r)
     {
+        //Expected number of copies of the allele coded 0
         double[] probs = caller.callSingle(r);
-        return 2.0 * probs[0] + probs[1];
+        double d = 0.0;
+        for (int g = 0; g < probs.length - 1; g++)
+        {
+            d += (probs.length - 1 - g) * probs[g];
+        }
+        return d;
+    }
+    
+    private static int index(int depth, int alt)
+    {
+        return depth * (depth + 1) / 2 + alt;
     }
 
     /**
@@ -169,4 +245,9 @@ public class MAFCalculator
     private Caller caller;
     private int minDepth;
     private int maxDepth;
+    private final int tableDepth;
+    private final double[] dosages;
+    private final double ploidy;
+    
+    private static final int MAX_TABLE_DEPTH = 200;
 }
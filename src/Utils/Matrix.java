@@ -1,49 +1,49 @@
-/*
- * This file is part of LinkImputeR.
- * 
- * LinkImputeR is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * LinkImputeR is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package Utils;
-
-/**
- * Matrix utility functions
- * @author Daniel Money
- * @version 1.1.3
- */
-public class Matrix
-{
-    private Matrix()
-    {
-        
-    }
-    
-    /**
-     * Transposes a matrix
-     * @param o The original matrix
-     * @return The transposed matrix
-     */
-    public static byte[][] transpose(byte[][] o)
-    {
-        byte[][] n = new byte[o[0].length][o.length];
-        for (int i = 0; i < o.length; i++)
-        {
-            for (int j = 0; j < o[i].length; j++)
-            {
-                n[j][i] = o[i][j];
-            }
-        }
-        return n;
-    }
-}
+/*
+ * This file is part of LinkImputeR.
+ * 
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils;
+
+/**
+ * Matrix utility functions
+ * @author Daniel Money
+ * @version 1.1.3
+ */
+public class Matrix
+{
+    private Matrix()
+    {
+        
+    }
+    
+    /**
+     * Transposes a matrix
+     * @param o The original matrix
+     * @return The transposed matrix
+     */
+    public static byte[][] transpose(byte[][] o)
+    {
+        byte[][] n = new byte[o[0].length][o.length];
+        for (int i = 0; i < o.length; i++)
+        {
+            for (int j = 0; j < o[i].length; j++)
+            {
+                n[j][i] = o[i][j];
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+
+/**
+ * Holds the thread pool used for parallel work and provides a simple way of
+ * running a task over a range of indices in chunks on that pool.  Like Log
+ * this is set up once, from the config, at the start of a run.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class Parallel
+{
+    private Parallel()
+    {
+    }
+
+    /**
+     * Initialise from a configuration
+     * @param params Configuration
+     */
+    public static void initialise(HierarchicalConfiguration<ImmutableNode> params)
+    {
+        initialise(params.getInt("threads",0), params.getInt("chunk",DEFAULT_CHUNK));
+    }
+
+    /**
+     * Initialise
+     * @param threads Number of threads to use.  Zero or less means use the
+     * number of available processors.
+     * @param chunk The maximum number of indices processed together as a single
+     * task
+     */
+    public static synchronized void initialise(int threads, int chunk)
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+        if (threads > 0)
+        {
+            pool = new ForkJoinPool(threads);
+        }
+        else
+        {
+            pool = null;
+        }
+        Parallel.threads = threads;
+        Parallel.chunk = Math.max(1, chunk);
+    }
+
+    /**
+     * Get the config for the parallel settings
+     * @param threads Number of threads to use.  Zero or less means use the
+     * number of available processors.
+     * @param chunk The maximum number of indices processed together as a single
+     * task
+     * @return The config
+     */
+    public static ImmutableNode getConfig(int threads, int chunk)
+    {
+        ImmutableNode Ithreads = new ImmutableNode.Builder().name("threads").value(threads).create();
+        ImmutableNode Ichunk = new ImmutableNode.Builder().name("chunk").value(chunk).create();
+
+        ImmutableNode config = new ImmutableNode.Builder().name("parallel")
+                .addChild(Ithreads)
+                .addChild(Ichunk)
+                .create();
+
+        return config;
+    }
+
+    /**
+     * Get the config for the current parallel settings
+     * @return The config
+     */
+    public static ImmutableNode getConfig()
+    {
+        return getConfig(threads, chunk);
+    }
+
+    /**
+     * Get the pool used for parallel work
+     * @return The pool
+     */
+    public static ForkJoinPool getPool()
+    {
+        ForkJoinPool p = pool;
+        return (p != null) ? p : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Get the number of threads work is spread across
+     * @return The number of threads
+     */
+    public static int getThreads()
+    {
+        return getPool().getParallelism();
+    }
+
+    /**
+     * Get the maximum chunk size
+     * @return The maximum chunk size
+     */
+    public static int getChunk()
+    {
+        return chunk;
+    }
+
+    /**
+     * Runs a task for each index from 0 (inclusive) to n (exclusive) on the
+     * pool.  Indices are split into contiguous chunks, each of which is run
+     * sequentially.  Chunks are no bigger than the configured chunk size and
+     * are small enough that there are several per thread.
+     * @param <E> The type of exception the task can throw
+     * @param n The number of indices
+     * @param task The task
+     * @throws E If the task throws an exception for any index.  If more than
+     * one index throws an exception the one for the lowest index is rethrown,
+     * as if the indices had been run in order.
+     */
+    public static <E extends Exception> void forEach(int n, IndexTask<E> task) throws E
+    {
+        if (n <= 0)
+        {
+            return;
+        }
+        int size = Math.max(1, Math.min(chunk, n / (getThreads() * 4)));
+        Failure failure = new Failure();
+        getPool().invoke(new Chunk<>(0, n, size, task, failure));
+        rethrow(failure.thrown);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> void rethrow(Throwable t) throws E
+    {
+        if (t == null)
+        {
+            return;
+        }
+        if (t instanceof RuntimeException)
+        {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error)
+        {
+            throw (Error) t;
+        }
+        //Can only be an E as that is the only checked exception the task can
+        //throw
+        throw (E) t;
+    }
+
+    /**
+     * A task to be run for a single index
+     * @param <E> The type of exception the task can throw
+     */
+    @FunctionalInterface
+    public interface IndexTask<E extends Exception>
+    {
+        /**
+         * Run the task
+         * @param i The index
+         * @throws E If there is a problem
+         */
+        void run(int i) throws E;
+    }
+
+    //The exception thrown for the lowest index so far
+    private static class Failure
+    {
+        synchronized void offer(int i, Throwable t)
+        {
+            if (i < index)
+            {
+                index = i;
+                thrown = t;
+            }
+        }
+
+        volatile int index = Integer.MAX_VALUE;
+        Throwable thrown = null;
+    }
+
+    private static class Chunk<E extends Exception> extends RecursiveAction
+    {
+        Chunk(int start, int end, int size, IndexTask<E> task, Failure failure)
+        {
+            this.start = start;
+            this.end = end;
+            this.size = size;
+            this.task = task;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (end - start > size)
+            {
+                int mid = (start + end) >>> 1;
+                invokeAll(new Chunk<>(start, mid, size, task, failure),
+                        new Chunk<>(mid, end, size, task, failure));
+            }
+            else
+            {
+                //Indices after a failure needn't be run but those before must
+                //be in case they fail too
+                int i = start;
+                try
+                {
+                    for (; (i < end) && (i < failure.index); i++)
+                    {
+                        task.run(i);
+                    }
+                }
+                catch (Exception | Error ex)
+                {
+                    failure.offer(i, ex);
+                }
+            }
+        }
+
+        private final int start;
+        private final int end;
+        private final int size;
+        private final IndexTask<E> task;
+        private final Failure failure;
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final int DEFAULT_CHUNK = 1000;
+
+    private static volatile ForkJoinPool pool = null;
+    private static int threads = 0;
+    private static int chunk = DEFAULT_CHUNK;
+}
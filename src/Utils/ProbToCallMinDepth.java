@@ -1,97 +1,142 @@
-/*
- * This file is part of LinkImputeR.
- * 
- * LinkImputeR is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * LinkImputeR is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package Utils;
-
-import java.util.stream.IntStream;
-
-/**
- * Converts genotype probabilities to a called genotype
- * @author Daniel Money
- * @version 1.0
- */
-public class ProbToCallMinDepth
-{
-    /**
-     * Default constructor - always calls a genotype, no matter the number of
-     * reads
-     */
-    public ProbToCallMinDepth()
-    {
-        this(0);
-    }
-
-    /**
-     * Creates an instance that will only call a genotype if there are more than
-     * the given number of reads for that genotype
-     * @param minDepth Minimum number of reads at which to call a genotype
-     */
-    public ProbToCallMinDepth(int minDepth)
-    {
-        this.minDepth = minDepth;
-    }
-
-    /**
-     * Call a single genotype
-     * @param prob Genotype probabilities
-     * @param readCounts The read counts for that genotype
-     * @return The called genotype
-     */   
-    public byte callSingle(double[] prob, int[] readCounts)
-    {
-        double maxP = 0.0;
-        int geno = -1;
-        for (int k = 0; k < 3; k++)
-        {
-            if (prob[k] > maxP)
-            {
-                maxP = prob[k];
-                geno = k;
-            }
-        }
-        if ((readCounts[0] + readCounts[1]) < minDepth)
-        {
-            return (byte) -1;
-        }
-        else
-        {
-            return (byte) geno;
-        }
-    }
-
-    /**
-     * Call a table of genotypes
-     * @param probs Table of genotype probabilities
-     * @param readCounts Table of read counts
-     * @return Table of called genotypes
-     */    
-    public byte[][] call(double[][][] probs, int[][][] readCounts)
-    {
-        return IntStream.range(0, probs.length).parallel().mapToObj(i -> 
-        {
-            int il = probs[i].length;
-            byte[] r = new byte[il];
-            for (int j = 0; j < il; j++)
-            {
-                r[j] = callSingle(probs[i][j], readCounts[i][j]);
-            }
-            return r;
-        }).toArray(byte[][]::new);
-    }
-    
-    private final double minDepth;
-}
+/*
+ * This file is part of LinkImputeR.
+ * 
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils;
+
+/**
+ * Converts genotype probabilities to a called genotype
+ * @author Daniel Money
+ * @version 1.0
+ */
+public class ProbToCallMinDepth
+{
+    /**
+     * Default constructor - always calls a genotype, no matter the number of
+     * reads
+     */
+    public ProbToCallMinDepth()
+    {
+        this(0);
+    }
+
+    /**
+     * Creates an instance that will only call a genotype if there are more than
+     * the given number of reads for that genotype
+     * @param minDepth Minimum number of reads at which to call a genotype
+     */
+    public ProbToCallMinDepth(int minDepth)
+    {
+        this.minDepth = minDepth;
+    }
+
+    /**
+     * Call a single genotype
+     * @param prob Genotype probabilities (one per allele dosage)
+     * @param readCounts The read counts for that genotype
+     * @return The called genotype
+     */   
+    public byte callSingle(double[] prob, int[] readCounts)
+    {
+        if ((readCounts[0] + readCounts[1]) < minDepth)
+        {
+            return (byte) -1;
+        }
+        else
+        {
+            return ProbToCall.mostProbable(prob, 0, prob.length);
+        }
+    }
+
+    /**
+     * Call a table of genotypes.  If the most probable genotypes were stored
+     * with the probabilities when they were calculated (see
+     * GenotypeProbabilities.getCalls) these are used and the probabilities
+     * are not read.
+     * @param probs Table of genotype probabilities
+     * @param readCounts Table of read counts
+     * @return Table of called genotypes
+     */    
+    public byte[][] call(GenotypeProbabilities probs, int[][][] readCounts)
+    {
+        byte[][] calls = probs.getCalls();
+        if (calls != null)
+        {
+            return call(calls, readCounts);
+        }
+        int snps = probs.getSNPs();
+        byte[][] ret = new byte[probs.getSamples()][];
+        Parallel.forEach(ret.length, i -> 
+        {
+            byte[] r = new byte[snps];
+            double[] prob = new double[probs.getGenotypes()];
+            for (int j = 0; j < snps; j++)
+            {
+                probs.getSingle(i, j, prob, 0);
+                r[j] = callSingle(prob, readCounts[i][j]);
+            }
+            ret[i] = r;
+        });
+        return ret;
+    }
+
+    /**
+     * Call a table of genotypes
+     * @param probs Table of genotype probabilities
+     * @param readCounts Table of read counts
+     * @return Table of called genotypes
+     */    
+    public byte[][] call(double[][][] probs, int[][][] readCounts)
+    {
+        byte[][] ret = new byte[probs.length][];
+        Parallel.forEach(ret.length, i -> 
+        {
+            int il = probs[i].length;
+            byte[] r = new byte[il];
+            for (int j = 0; j < il; j++)
+            {
+                r[j] = callSingle(probs[i][j], readCounts[i][j]);
+            }
+            ret[i] = r;
+        });
+        return ret;
+    }
+    
+    /**
+     * Call a table of genotypes given the most probable genotype for each
+     * @param calls Table of most probable genotypes
+     * @param readCounts Table of read counts
+     * @return Table of called genotypes
+     */    
+    public byte[][] call(byte[][] calls, int[][][] readCounts)
+    {
+        byte[][] ret = new byte[calls.length][];
+        Parallel.forEach(ret.length, i -> 
+        {
+            int il = calls[i].length;
+            byte[] r = new byte[il];
+            for (int j = 0; j < il; j++)
+            {
+                int[] rc = readCounts[i][j];
+                r[j] = ((rc[0] + rc[1]) < minDepth) ? -1 : calls[i][j];
+            }
+            ret[i] = r;
+        });
+        return ret;
+    }
+    
+    private final double minDepth;
+}
@@ -0,0 +1,266 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils.SingleGenotype;
+
+import Utils.GenotypeProbabilities;
+import java.util.Arrays;
+
+/**
+ * Represents a batch of genotypes, such as those masked when calculating
+ * accuracy, as parallel primitive arrays rather than one object per genotype.
+ * 
+ * A batch holds the position of each genotype and, where relevant, its
+ * original and masked reads and the minor allele frequency of its snp.  Each
+ * stage of the accuracy calculation (calling, imputing, combining) adds
+ * probabilities or calls by creating a new batch that shares all the other
+ * arrays with the batch it was created from.  Batches are not changed once
+ * created.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class GenotypeBatch
+{
+
+    /**
+     * Creates a batch holding only genotype positions
+     * @param samples The sample position of each genotype
+     * @param snps The snp position of each genotype
+     */
+    public GenotypeBatch(int[] samples, int[] snps)
+    {
+        this(samples, snps, null, null, null);
+    }
+
+    /**
+     * Creates a batch of masked genotypes
+     * @param samples The sample position of each genotype
+     * @param snps The snp position of each genotype
+     * @param original The original read counts, two per genotype (allele 0
+     * then allele 1)
+     * @param masked The masked read counts, two per genotype
+     * @param mafs The minor allele frequency for the snp of each genotype
+     */
+    public GenotypeBatch(int[] samples, int[] snps, int[] original, int[] masked, double[] mafs)
+    {
+        this.samples = samples;
+        this.snps = snps;
+        this.original = original;
+        this.masked = masked;
+        this.mafs = mafs;
+        this.probs = null;
+        this.calls = null;
+        this.genotypes = 0;
+    }
+
+    private GenotypeBatch(GenotypeBatch from, double[] probs, int genotypes, byte[] calls)
+    {
+        this.samples = from.samples;
+        this.snps = from.snps;
+        this.original = from.original;
+        this.masked = from.masked;
+        this.mafs = from.mafs;
+        this.probs = probs;
+        this.genotypes = genotypes;
+        this.calls = calls;
+    }
+
+    /**
+     * Creates a batch of genotypes with the same positions, reads and minor
+     * allele frequencies as this one and the given diploid probabilities
+     * @param probs The genotype probabilities, three per genotype (genotype
+     * 0, 1, 2) stored together
+     * @return The new batch
+     */
+    public GenotypeBatch withProbabilities(double[] probs)
+    {
+        return withProbabilities(probs, GenotypeProbabilities.DIPLOID);
+    }
+
+    /**
+     * Creates a batch of genotypes with the same positions, reads and minor
+     * allele frequencies as this one and the given probabilities
+     * @param probs The genotype probabilities, one per allele dosage for each
+     * genotype stored together
+     * @param genotypes The number of probabilities per genotype (ploidy + 1)
+     * @return The new batch
+     */
+    public GenotypeBatch withProbabilities(double[] probs, int genotypes)
+    {
+        return new GenotypeBatch(this, probs, genotypes, null);
+    }
+
+    /**
+     * Creates a batch of genotypes with the same positions, reads and minor
+     * allele frequencies as this one and the given calls
+     * @param calls The called genotypes
+     * @return The new batch
+     */
+    public GenotypeBatch withCalls(byte[] calls)
+    {
+        return new GenotypeBatch(this, null, 0, calls);
+    }
+
+    /**
+     * Creates a batch of genotype positions containing the genotypes in this
+     * batch followed by those in another
+     * @param other The other batch
+     * @return The new batch (which only holds positions)
+     */
+    public GenotypeBatch append(GenotypeBatch other)
+    {
+        int[] s = Arrays.copyOf(samples, samples.length + other.size());
+        int[] p = Arrays.copyOf(snps, snps.length + other.size());
+        System.arraycopy(other.samples, 0, s, samples.length, other.size());
+        System.arraycopy(other.snps, 0, p, snps.length, other.size());
+        return new GenotypeBatch(s, p);
+    }
+
+    /**
+     * Creates an empty batch
+     * @return The empty batch
+     */
+    public static GenotypeBatch empty()
+    {
+        return new GenotypeBatch(new int[0], new int[0]);
+    }
+
+    /**
+     * Get the number of genotypes in the batch
+     * @return The number of genotypes
+     */
+    public int size()
+    {
+        return samples.length;
+    }
+
+    /**
+     * Get the sample position of a genotype
+     * @param i The genotype's index in the batch
+     * @return The sample position
+     */
+    public int getSample(int i)
+    {
+        return samples[i];
+    }
+
+    /**
+     * Get the snp position of a genotype
+     * @param i The genotype's index in the batch
+     * @return The snp position
+     */
+    public int getSNP(int i)
+    {
+        return snps[i];
+    }
+
+    /**
+     * Get the original read count for one allele of a genotype
+     * @param i The genotype's index in the batch
+     * @param allele The allele (0 or 1)
+     * @return The read count
+     */
+    public int getOriginal(int i, int allele)
+    {
+        return original[2 * i + allele];
+    }
+
+    /**
+     * Get the masked read count for one allele of a genotype
+     * @param i The genotype's index in the batch
+     * @param allele The allele (0 or 1)
+     * @return The read count
+     */
+    public int getMasked(int i, int allele)
+    {
+        return masked[2 * i + allele];
+    }
+
+    /**
+     * Get the masked depth of a genotype
+     * @param i The genotype's index in the batch
+     * @return The masked depth
+     */
+    public int getMaskedDepth(int i)
+    {
+        return masked[2 * i] + masked[2 * i + 1];
+    }
+
+    /**
+     * Get the minor allele frequency for the snp of a genotype
+     * @param i The genotype's index in the batch
+     * @return The minor allele frequency
+     */
+    public double getMaf(int i)
+    {
+        return mafs[i];
+    }
+
+    /**
+     * Get the number of probabilities held for each genotype (ploidy + 1)
+     * @return The number of probabilities, zero if the batch holds no
+     * probabilities
+     */
+    public int getGenotypes()
+    {
+        return genotypes;
+    }
+
+    /**
+     * Get the probability of one genotype for a genotype in the batch
+     * @param i The genotype's index in the batch
+     * @param genotype The genotype (the alt allele dosage, 0 to ploidy)
+     * @return The probability
+     */
+    public double getProb(int i, int genotype)
+    {
+        return probs[genotypes * i + genotype];
+    }
+
+    /**
+     * Get the called genotype
+     * @param i The genotype's index in the batch
+     * @return The called genotype
+     */
+    public byte getCall(int i)
+    {
+        return calls[i];
+    }
+
+    /**
+     * Tests whether two batches represent the same genotypes in the same order
+     * @param other The other batch
+     * @return Whether the batches represent the same genotypes
+     */
+    public boolean samePositions(GenotypeBatch other)
+    {
+        if ((samples == other.samples) && (snps == other.snps))
+        {
+            return true;
+        }
+        return Arrays.equals(samples, other.samples) && Arrays.equals(snps, other.snps);
+    }
+
+    private final int[] samples;
+    private final int[] snps;
+    private final int[] original;
+    private final int[] masked;
+    private final double[] mafs;
+    private final double[] probs;
+    private final int genotypes;
+    private final byte[] calls;
+}
@@ -0,0 +1,234 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package Utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the entries with the top values for each of a number of rows.  The
+ * entries for all rows are stored in two flat primitive arrays, with each row
+ * held as a heap with its worst entry at the root, so entries are added in
+ * place in logarithmic time without any allocation.
+ *
+ * Entries with equal values are ordered by the entry itself, lowest first,
+ * so the entries kept and their order do not depend on the order they were
+ * added in.
+ *
+ * This class is not thread safe.  Different rows can be added to by
+ * different threads at the same time but access to a single row must be
+ * confined to one thread at a time.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class TopHeaps
+{
+
+    /**
+     * Constructor
+     * @param rows The number of rows
+     * @param top The number of top entries to store for each row
+     * @throws IllegalArgumentException If more entries would be stored in
+     * total than fit in an array
+     */
+    public TopHeaps(int rows, int top)
+    {
+        long size = (long) rows * (long) top;
+        if (size > MAX_SIZE)
+        {
+            throw new IllegalArgumentException("Can not store the top " + top + " entries for each of "
+                    + rows + " rows as " + size + " entries is more than the maximum of " + MAX_SIZE);
+        }
+        this.top = top;
+        entries = new int[(int) size];
+        values = new double[(int) size];
+        sizes = new int[rows];
+    }
+
+    /**
+     * Attempts to add a new entry to a row
+     * @param row The row
+     * @param e The entry
+     * @param v The entry's value
+     * @return Whether the entry was added.  Returns false if the row is full
+     * and the entry is worse than all those already in it, or if the value is
+     * not greater than -Double.MAX_VALUE (which includes NaN).
+     */
+    public boolean add(int row, int e, double v)
+    {
+        if (!(v > -Double.MAX_VALUE))
+        {
+            return false;
+        }
+        int o = row * top;
+        int s = sizes[row];
+        if (s < top)
+        {
+            //Sift up from the end
+            int c = s;
+            while (c > 0)
+            {
+                int p = (c - 1) >>> 1;
+                if (!worse(v, e, values[o + p], entries[o + p]))
+                {
+                    break;
+                }
+                values[o + c] = values[o + p];
+                entries[o + c] = entries[o + p];
+                c = p;
+            }
+            values[o + c] = v;
+            entries[o + c] = e;
+            sizes[row] = s + 1;
+            return true;
+        }
+        if ((top == 0) || !worse(values[o], entries[o], v, e))
+        {
+            return false;
+        }
+        //Replace the root and sift down
+        siftDown(entries, values, o, top, e, v);
+        return true;
+    }
+
+    /**
+     * Returns the number of entries stored for a row, up to the number of top
+     * entries stored.  If this is less than that number the arrays returned
+     * by getList and getValueList are padded at the end.  It is also the
+     * number of entries written by getOrdered.
+     * @param row The row
+     * @return The number of entries
+     */
+    public int size(int row)
+    {
+        return sizes[row];
+    }
+
+    /**
+     * Returns the entries for a row as an array, padded with zeros if fewer
+     * than the number of top entries have been added
+     * @param row The row
+     * @return Ordered list of entries
+     */
+    public int[] getList(int row)
+    {
+        return getList(row, top);
+    }
+
+    /**
+     * Returns the entries for a row as an array.  Only the top n entries are
+     * returned, padded with zeros if fewer than n entries are stored.
+     * @param row The row
+     * @param n The number of entries to return
+     * @return Ordered list of entries
+     */
+    public int[] getList(int row, int n)
+    {
+        int s = sizes[row];
+        int[] e = new int[Math.max(n, s)];
+        double[] v = new double[s];
+        getOrdered(row, e, v);
+        if (n < s)
+        {
+            return Arrays.copyOf(e, n);
+        }
+        return e;
+    }
+
+    /**
+     * Returns the values for a row as an array, padded with -Double.MAX_VALUE
+     * if fewer than the number of top entries have been added
+     * @param row The row
+     * @return Ordered list of values
+     */
+    public double[] getValueList(int row)
+    {
+        int s = sizes[row];
+        double[] v = new double[top];
+        getOrdered(row, new int[s], v);
+        Arrays.fill(v, s, top, -Double.MAX_VALUE);
+        return v;
+    }
+
+    /**
+     * Copies the entries for a row and their values into existing arrays,
+     * best first.  Only the first size(row) elements of each array are
+     * written.  The order is found by popping a copy of the row's heap so
+     * takes time proportional to top log top.
+     * @param row The row
+     * @param e The array to copy the entries into
+     * @param v The array to copy the values into
+     * @return The number of entries copied
+     */
+    public int getOrdered(int row, int[] e, double[] v)
+    {
+        int o = row * top;
+        int s = sizes[row];
+        System.arraycopy(entries, o, e, 0, s);
+        System.arraycopy(values, o, v, 0, s);
+        //The copy is still a heap with the worst entry at the root.  Moving
+        //the root to the end and sifting down what was there leaves the
+        //entries best first.
+        for (int end = s - 1; end > 0; end--)
+        {
+            int we = e[0];
+            double wv = v[0];
+            siftDown(e, v, 0, end, e[end], v[end]);
+            e[end] = we;
+            v[end] = wv;
+        }
+        return s;
+    }
+
+    //Places an entry at the root of a heap of the given size starting at
+    //offset o, replacing what was there, and sifts it down
+    private static void siftDown(int[] es, double[] vs, int o, int size, int e, double v)
+    {
+        int c = 0;
+        while (true)
+        {
+            int l = 2 * c + 1;
+            if (l >= size)
+            {
+                break;
+            }
+            int r = l + 1;
+            int w = ((r < size) && worse(vs[o + r], es[o + r], vs[o + l], es[o + l])) ? r : l;
+            if (!worse(vs[o + w], es[o + w], v, e))
+            {
+                break;
+            }
+            vs[o + c] = vs[o + w];
+            es[o + c] = es[o + w];
+            c = w;
+        }
+        vs[o + c] = v;
+        es[o + c] = e;
+    }
+
+    private static boolean worse(double v1, int e1, double v2, int e2)
+    {
+        return (v1 < v2) || ((v1 == v2) && (e1 > e2));
+    }
+
+    private final int top;
+    private final int[] entries;
+    private final double[] values;
+    private final int[] sizes;
+
+    private static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+}
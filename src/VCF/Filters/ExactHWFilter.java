@@ -3,7 +3,6 @@ package VCF.Filters;
 import Callers.BinomialCaller;
 import Callers.Caller;
 import Executable.Available;
-import Utils.ProbToCallMinDepth;
 import VCF.Exceptions.VCFDataException;
 import VCF.Genotype;
 import VCF.Mappers.DepthMapper;
@@ -22,7 +21,7 @@ public class ExactHWFilter extends PositionFilter
         this.significance = significance;
         dm = new DepthMapper();
         this.caller = caller;
-        p2c = new ProbToCallMinDepth(minDepth);
+        hw = new HardyWeinbergTest(significance);
     }
 
     /**
@@ -35,7 +34,7 @@ public class ExactHWFilter extends PositionFilter
         this.significance = params.getDouble("significance");
         dm = new DepthMapper();
         caller = Available.getCaller(params.configurationAt("caller"));
-        p2c = new ProbToCallMinDepth(minDepth);
+        hw = new HardyWeinbergTest(significance);
     }
 
     @Override
@@ -45,15 +44,19 @@ public class ExactHWFilter extends PositionFilter
         for (Genotype g: p.genotypeList())
         {
             int[] r = dm.map(g.getData("AD"));
-            double[] prob = caller.callSingle(r);
-            byte call = p2c.callSingle(prob, r);
-            if (call > -1)
+            byte call = caller.callGenotype(r);
+            if ((call > -1) && ((r[0] + r[1]) >= minDepth))
             {
                 gCounts[call]++;
             }
         }
-        double prob = Filters.HardyWeinbergCalculation.hwCalculate(gCounts[0],gCounts[1],gCounts[2]);
-        return (prob > significance);
+        return hw.test(gCounts[0],gCounts[1],gCounts[2]);
+    }
+
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
     }
 
     @Override
@@ -79,9 +82,9 @@ public class ExactHWFilter extends PositionFilter
         return config;
     }
 
-    private DepthMapper dm;
-    private ProbToCallMinDepth p2c;
-    private Caller caller;
-    private int minDepth;
-    private double significance;
+    private final DepthMapper dm;
+    private final HardyWeinbergTest hw;
+    private final Caller caller;
+    private final int minDepth;
+    private final double significance;
 }
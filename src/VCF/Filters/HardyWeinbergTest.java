@@ -0,0 +1,160 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package VCF.Filters;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exact Hardy-Weinberg test (Wigginton et al 2005) at a fixed significance
+ * level.  Probabilities are calculated directly from a table of log factorials
+ * and the tails are only summed until it is known which side of the
+ * significance level the p-value lies.  Results are memoized by genotype
+ * counts since many positions share the same counts.  Safe to use from
+ * multiple threads.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public class HardyWeinbergTest
+{
+
+    /**
+     * Constructor
+     * @param significance Positions with a p-value greater than this pass the
+     * test
+     */
+    public HardyWeinbergTest(double significance)
+    {
+        this.significance = significance;
+        cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Tests whether the given genotype counts are consistent with Hardy-Weinberg
+     * equilibrium, that is whether the p-value is greater than the significance
+     * level.  Gives the same result as comparing the p-value from
+     * HardyWeinbergCalculation.hwCalculate with the significance level.
+     * @param obsAA Number of homozygotes for the first allele
+     * @param obsAB Number of heterozygotes
+     * @param obsBB Number of homozygotes for the second allele
+     * @return Whether the counts pass the test
+     */
+    public boolean test(int obsAA, int obsAB, int obsBB)
+    {
+        long key = ((long) obsAA << 42) | ((long) obsAB << 21) | (long) obsBB;
+        Boolean result = cache.get(key);
+        if (result == null)
+        {
+            result = calculate(obsAA, obsAB, obsBB);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the significance level
+     * @return The significance level
+     */
+    public double getSignificance()
+    {
+        return significance;
+    }
+
+    private boolean calculate(int obsAA, int obsAB, int obsBB)
+    {
+        int diplotypes = obsAA + obsAB + obsBB;
+        int rare = Math.min(2 * obsAA + obsAB, 2 * obsBB + obsAB);
+        int hets = obsAB;
+
+        if (diplotypes == 0)
+        {
+            return true;
+        }
+
+        // The p-value is twice the smaller of the two tails (each including the
+        // observed count) so it is above the significance level if and only if
+        // both tails are above half the significance level.
+        double limit = significance / 2.0;
+
+        double constant = logFactorial(diplotypes) + logFactorial(rare) +
+                logFactorial(2 * diplotypes - rare) - logFactorial(2 * diplotypes);
+
+        double observed = probability(hets, rare, diplotypes, constant);
+        if (observed > limit)
+        {
+            return true;
+        }
+
+        double top = observed;
+        for (int het = hets + 2; (het <= rare) && (top <= limit); het += 2)
+        {
+            top += probability(het, rare, diplotypes, constant);
+        }
+        if (top <= limit)
+        {
+            return false;
+        }
+
+        double otherSide = observed;
+        for (int het = hets - 2; (het >= 0) && (otherSide <= limit); het -= 2)
+        {
+            otherSide += probability(het, rare, diplotypes, constant);
+        }
+        return otherSide > limit;
+    }
+
+    private static double probability(int het, int rare, int diplotypes, double constant)
+    {
+        int homr = (rare - het) / 2;
+        int homc = diplotypes - het - homr;
+        return Math.exp(constant + het * LOG2 - logFactorial(het) -
+                logFactorial(homr) - logFactorial(homc));
+    }
+
+    private static double logFactorial(int n)
+    {
+        double[] table = logFactorials;
+        if (n >= table.length)
+        {
+            table = extend(n);
+        }
+        return table[n];
+    }
+
+    private static synchronized double[] extend(int n)
+    {
+        double[] old = logFactorials;
+        if (n < old.length)
+        {
+            return old;
+        }
+        double[] table = new double[Math.max(n + 1, 2 * old.length)];
+        System.arraycopy(old, 0, table, 0, old.length);
+        for (int i = old.length; i < table.length; i++)
+        {
+            table[i] = table[i - 1] + Math.log(i);
+        }
+        logFactorials = table;
+        return table;
+    }
+
+    private final double significance;
+    private final ConcurrentHashMap<Long,Boolean> cache;
+
+    private static volatile double[] logFactorials = {0.0, 0.0};
+    private static final double LOG2 = Math.log(2.0);
+}
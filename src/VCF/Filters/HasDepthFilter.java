@@ -59,6 +59,12 @@ public class HasDepthFilter extends PositionFilter
         return config;
     }
     
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+    
     public String getSummary()
     {
         return "HasDepth";
@@ -20,6 +20,7 @@ package VCF.Filters;
 
 import Callers.Caller;
 import Executable.Available;
+import Utils.ConfigKeys;
 import Utils.MAFCalculator;
 import VCF.Exceptions.VCFDataException;
 import VCF.Position;
@@ -32,7 +33,7 @@ import org.apache.commons.configuration2.tree.ImmutableNode.Builder;
  * @author Daniel Money
  * @version 1.1.3
  */
-public class MAFFilter extends PositionFilter
+public class MAFFilter extends ThresholdPositionFilter
 {
 
     /**
@@ -67,11 +68,27 @@ public class MAFFilter extends PositionFilter
         calculator = new MAFCalculator(caller,minDepth,maxDepth);
     }
 
-    public boolean test(Position p) throws VCFDataException
+    public double statistic(Position p) throws VCFDataException
     {
         double m = calculator.maf(p);
 
-        return (Math.min(m,1.0-m) > maf);
+        return Math.min(m,1.0-m);
+    }
+    
+    public double getThreshold()
+    {
+        return maf;
+    }
+    
+    public boolean passAbove()
+    {
+        return true;
+    }
+    
+    public String getStatisticKey()
+    {
+        return "MAF(" + calculator.getMinDepth() + "," + calculator.getMaxDepth() + ","
+                + ConfigKeys.key(calculator.getCaller().getConfig()) + ")";
     }
     
     public ImmutableNode getConfig()
@@ -92,6 +109,12 @@ public class MAFFilter extends PositionFilter
         return config;
     }
     
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+    
     public String getSummary()
     {
         return "MAF(" + maf + ")";
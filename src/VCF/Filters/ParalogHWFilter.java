@@ -25,7 +25,6 @@ import VCF.Exceptions.VCFDataException;
 import VCF.Genotype;
 import VCF.Mappers.DepthMapper;
 import VCF.Position;
-import java.util.Arrays;
 import java.util.List;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
@@ -51,6 +50,9 @@ public class ParalogHWFilter extends PositionFilter
         this.error = error;
         mafCalculator = new MAFCalculator(new BinomialCaller(error),8,100);
         cs = new ChiSquaredDistribution(1);
+        dm = new DepthMapper();
+        logError = Math.log(error);
+        logOneMinusError = Math.log(1 - error);
     }
     
     /**
@@ -63,16 +65,36 @@ public class ParalogHWFilter extends PositionFilter
         this.error = params.getDouble("error");
         mafCalculator = new MAFCalculator(new BinomialCaller(error),8,100);
         cs = new ChiSquaredDistribution(1);
+        dm = new DepthMapper();
+        logError = Math.log(error);
+        logOneMinusError = Math.log(1 - error);
     }
     
     public boolean test(Position p) throws VCFDataException
     {
-        double maf = mafCalculator.maf(p);
+        //Reads are only extracted once and used for both the maf and the HW
+        //calculation
+        List<Genotype> list = p.genotypeList();
+        int[][] reads = new int[list.size()][];
+        for (int i = 0; i < list.size(); i++)
+        {
+            reads[i] = dm.map(list.get(i).getData("AD"));
+        }
+        
+        double maf = mafCalculator.maf(reads);
         if (maf == 0.0)
         {
              return false;
         }
-        HW hw = new HW(p,maf,error);
+        HW hw = new HW(reads,maf);
+        //The original calculation, which multiplied the partials directly,
+        //rejected the position if every partial of a sample underflowed
+        //(the likelihood was then -inf and the test NaN).  That is kept so
+        //results are unchanged.
+        if (hw.underflowed())
+        {
+            return false;
+        }
         GoldenSection gs = new GoldenSection(0.0001,Double.MAX_VALUE);
 
         double min = Math.max(-maf*maf, -(1-maf)*(1-maf));
@@ -100,6 +122,12 @@ public class ParalogHWFilter extends PositionFilter
         return config;
     }
     
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+    
     public String getSummary()
     {
         return "HW(" + significance + ")";
@@ -109,47 +137,94 @@ public class ParalogHWFilter extends PositionFilter
     private final ChiSquaredDistribution cs;
     private final double error;
     private final MAFCalculator mafCalculator;
+    private final DepthMapper dm;
+    private final double logError;
+    private final double logOneMinusError;
+    
+    private static final double LOGHALF = Math.log(0.5);
+    private static final double LOG2 = Math.log(2.0);
+    private static final double SMALL = 0x1.0p-500;
+    //Below this log a partial may underflow when calculated directly
+    private static final double UNDERFLOW = -700.0;
 
     private class HW implements SingleDoubleValue
     {
-        public HW(Position p, double maf, double error) throws VCFDataException
+        public HW(int[][] reads, double maf)
         {
-            DepthMapper dm = new DepthMapper();
             this.maf = maf;
-            //partials = p.genotypeStream().map(g -> partial(dm.map(g.getData("AD")),error)).toArray(i -> new double[i][]);
             
-            List<Genotype> list = p.genotypeList();
-            partials = new double[list.size()][];
-            for (int i = 0; i < list.size(); i++)
+            //The partials are calculated in log space.  For each sample the
+            //largest is factored out into a constant so the stored values are
+            //at most one and do not underflow.
+            partials = new double[reads.length * 3];
+            double c = 0.0;
+            boolean u = false;
+            for (int i = 0; i < reads.length; i++)
             {
-               partials[i] = partial(dm.map(list.get(i).getData("AD")),error);
+                int[] r = reads[i];
+                double l0 = r[0] * logOneMinusError + r[1] * logError;
+                double l1 = (r[0] + r[1]) * LOGHALF;
+                double l2 = (r[0] + r[1]) * logError;
+                double m = Math.max(l0, Math.max(l1, l2));
+                if ((m < UNDERFLOW) && !u)
+                {
+                    u = (Math.pow(1 - error, r[0]) * Math.pow(error, r[1]) == 0.0) &&
+                            (Math.pow(0.5, r[0]) * Math.pow(0.5, r[1]) == 0.0) &&
+                            (Math.pow(error, r[0]) * Math.pow(error, r[1]) == 0.0);
+                }
+                partials[3 * i] = Math.exp(l0 - m);
+                partials[3 * i + 1] = Math.exp(l1 - m);
+                partials[3 * i + 2] = Math.exp(l2 - m);
+                c += m;
             }
-
+            constant = c;
+            underflowed = u;
         }
 
-        private double[] partial(int[] counts, double e)
+        //Whether every partial of any sample underflows to zero when
+        //calculated directly rather than in log space
+        public boolean underflowed()
         {
-            double[] p = new double[3];
-            p[0] = Math.pow(1-e,counts[0]) * Math.pow(e,counts[1]);
-            p[1] = Math.pow(0.5,counts[0]) * Math.pow(0.5,counts[1]);
-            p[2] = Math.pow(e,counts[0]) * Math.pow(e,counts[1]);
-            return p;
+            return underflowed;
         }
 
         public double value(double d)
         {
-            double[] f = new double[3];
-            f[0] = (1 - maf) * (1 - maf) + d;
-            f[1] = 2 * (maf * (1 - maf) - d);
-            f[2] = maf * maf + d;
+            double f0 = (1 - maf) * (1 - maf) + d;
+            double f1 = 2 * (maf * (1 - maf) - d);
+            double f2 = maf * maf + d;
 
-            return Arrays.stream(partials).mapToDouble(partial -> {
-                double[] p = partial;
-                return Math.log(f[0] * p[0] + f[1] * p[1] + f[2] * p[2]);
-            }).sum();
+            //Rather than taking a log per sample the per sample likelihoods
+            //are multiplied together, with the product's exponent moved into
+            //an integer whenever it gets small, and a single log taken at the
+            //end
+            double product = 1.0;
+            int exponent = 0;
+            double logs = 0.0;
+            for (int i = 0; i < partials.length; i += 3)
+            {
+                double l = f0 * partials[i] + f1 * partials[i + 1] + f2 * partials[i + 2];
+                if (l < SMALL)
+                {
+                    logs += Math.log(l);
+                }
+                else
+                {
+                    product *= l;
+                    if (product < SMALL)
+                    {
+                        int e = Math.getExponent(product);
+                        product = Math.scalb(product, -e);
+                        exponent += e;
+                    }
+                }
+            }
+            return constant + logs + Math.log(product) + exponent * LOG2;
         }
 
         private final double maf;
-        private final double[][] partials;
+        private final double constant;
+        private final boolean underflowed;
+        private final double[] partials;
     }
 }
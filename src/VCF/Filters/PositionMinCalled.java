@@ -90,6 +90,12 @@ public class PositionMinCalled extends PositionFilter
         return config;
     }
     
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+    
     public String getSummary()
     {
         return "PositionMinCall(" + minCalled + ")";
@@ -29,7 +29,7 @@ import org.apache.commons.configuration2.tree.ImmutableNode;
  * @author Daniel Money
  * @version 1.1.3
  */
-public class PositionMissing extends PositionFilter
+public class PositionMissing extends ThresholdPositionFilter
 {
 
     /**
@@ -54,7 +54,7 @@ public class PositionMissing extends PositionFilter
         this.minDepth = params.getInt("mindepth");
     }
     
-    public boolean test(Position p) throws VCFDataException
+    public double statistic(Position p) throws VCFDataException
     {
         DepthMapper dm = new DepthMapper();
 
@@ -69,8 +69,22 @@ public class PositionMissing extends PositionFilter
             }
         }
 
-        double per = (double) c / (double) p.samples().length;
-        return per < threshold;
+        return (double) c / (double) p.samples().length;
+    }
+    
+    public double getThreshold()
+    {
+        return threshold;
+    }
+    
+    public boolean passAbove()
+    {
+        return false;
+    }
+    
+    public String getStatisticKey()
+    {
+        return "PositionMiss(" + minDepth + ")";
     }
     
     public ImmutableNode getConfig()
@@ -87,6 +101,12 @@ public class PositionMissing extends PositionFilter
         return config;
     }
     
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+    
     public String getSummary()
     {
         return "PositionMiss(" + threshold + ")";
@@ -90,6 +90,12 @@ public class SampleMinCalled extends SampleFilter
         return config;
     }
     
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+    
     public String getSummary()
     {
         return "SampleMinCall(" + minCalled + ")";
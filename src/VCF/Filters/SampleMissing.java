@@ -87,6 +87,12 @@ public class SampleMissing extends SampleFilter
         return config;
     }
     
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+    
     public String getSummary()
     {
         return "SampleMiss(" + threshold + ")";
@@ -0,0 +1,93 @@
+/*
+ * This file is part of LinkImputeR.
+ *
+ * LinkImputeR is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LinkImputeR is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LinkImpute.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package VCF.Filters;
+
+import VCF.Exceptions.VCFDataException;
+import VCF.Position;
+import VCF.VCF;
+
+/**
+ * Represents a position filter that passes positions where a per position
+ * statistic is above (or below) a threshold.  Since such filters are monotone
+ * in the threshold when applied to a VCF positions are sorted once by their
+ * statistic and the sort reused by any filter with the same statistic,
+ * whatever its threshold.
+ * @author Daniel Money
+ * @version 1.2.4
+ */
+public abstract class ThresholdPositionFilter extends PositionFilter
+{
+
+    /**
+     * Calculates the statistic for a position
+     * @param p The position
+     * @return The statistic
+     * @throws VCF.Exceptions.VCFDataException If there is a problem with the
+     * data in the VCF
+     */
+    public abstract double statistic(Position p) throws VCFDataException;
+
+    /**
+     * Gets the threshold
+     * @return The threshold
+     */
+    public abstract double getThreshold();
+
+    /**
+     * Whether positions pass if their statistic is above the threshold (or
+     * below it)
+     * @return True if positions with a statistic strictly above the threshold
+     * pass, false if those strictly below pass
+     */
+    public abstract boolean passAbove();
+
+    /**
+     * Gets a key identifying the statistic.  Filters with equal keys must
+     * calculate the same statistic for every position, whatever their
+     * thresholds.
+     * @return The key
+     */
+    public abstract String getStatisticKey();
+
+    /**
+     * Tests whether a statistic passes the threshold
+     * @param statistic The statistic
+     * @return Whether it passes
+     */
+    public boolean passes(double statistic)
+    {
+        if (passAbove())
+        {
+            return statistic > getThreshold();
+        }
+        else
+        {
+            return statistic < getThreshold();
+        }
+    }
+
+    public boolean test(Position p) throws VCFDataException
+    {
+        return passes(statistic(p));
+    }
+
+    public void change(VCF vcf) throws VCFDataException
+    {
+        vcf.filterPositionsByThreshold(this);
+    }
+}
@@ -47,4 +47,12 @@ public interface VCFFilter
      * @return The config
      */
     ImmutableNode getConfig();
+    
+    /**
+     * Whether this filter can be tested on different positions (or samples)
+     * at the same time from different threads.  If it can filtering will be
+     * done in parallel.
+     * @return Whether the filter is thread safe
+     */
+    boolean isThreadSafe();
 }
@@ -21,7 +21,8 @@ import VCF.Exceptions.VCFUnexpectedDataException;
 import java.util.HashMap;
 
 /**
- * Maps from a text string representing a genotype to a byte representing a genotype
+ * Maps from a text string representing a genotype to a byte representing a genotype.
+ * The byte is the alt allele dosage so genotypes of any ploidy can be mapped.
  * @author Daniel Money
  */
 public class GenoToByte implements ByteMapper
@@ -54,14 +55,45 @@ public class GenoToByte implements ByteMapper
      */
     public byte map(String s) throws VCFUnexpectedDataException
     {
-        try
+        Byte b = map.get(s);
+        if (b == null)
         {
-            return map.get(s);
+            return mapAlleles(s);
         }
-        catch (NullPointerException ex)
+        return b;
+    }
+    
+    //Genotypes other than diploid ones are mapped by counting alleles
+    private byte mapAlleles(String s) throws VCFUnexpectedDataException
+    {
+        String[] alleles = s.split("[/|]", -1);
+        int dosage = 0;
+        int missing = 0;
+        for (String a: alleles)
+        {
+            switch (a)
+            {
+                case "0":
+                    break;
+                case "1":
+                    dosage++;
+                    break;
+                case ".":
+                    missing++;
+                    break;
+                default:
+                    throw new VCFUnexpectedDataException(s + " is not a valid genotype ");
+            }
+        }
+        if (missing == alleles.length)
+        {
+            return (byte) -1;
+        }
+        if ((missing > 0) || (alleles.length > Byte.MAX_VALUE - 1))
         {
             throw new VCFUnexpectedDataException(s + " is not a valid genotype ");
         }
+        return (byte) dosage;
     }
 
     private final HashMap<String,Byte> map;
@@ -17,6 +17,7 @@
 
 package VCF;
 
+import Utils.Parallel;
 import VCF.Changers.GenotypeChanger;
 import VCF.Changers.PositionChanger;
 import VCF.Exceptions.VCFDataException;
@@ -27,6 +28,7 @@ import VCF.Exceptions.VCFInputException;
 import VCF.Exceptions.VCFMissingFormatException;
 import VCF.Filters.PositionFilter;
 import VCF.Filters.SampleFilter;
+import VCF.Filters.ThresholdPositionFilter;
 import VCF.Mappers.ByteMapper;
 import VCF.Mappers.DoubleMapper;
 import VCF.Mappers.IntegerMapper;
@@ -47,7 +49,10 @@ import java.io.PrintWriter;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -136,6 +141,9 @@ public class VCF
             ArrayList<PositionMeta> positionList = new ArrayList<>();
             ArrayList<RawGenotype[]> genotypeList = new ArrayList<>();
             ArrayList<String> metaLines = new ArrayList<>();
+            ArrayList<String> block = new ArrayList<>(BLOCK_SIZE);
+            boolean threadSafe = Stream.concat(preFilters.stream(), filters.stream())
+                    .allMatch(filter -> filter.isThreadSafe());
             String line;
             while ((line = in.readLine()) != null)
             {
@@ -184,63 +192,19 @@ public class VCF
                     {
                         throw new VCFHeaderLineException("Data lines occur before header line");
                     }
-                    String[] parts = line.split("\t");
-                    
-                    if (parts.length < samples.length + 9)
-                    {
-                        throw new VCFDataLineException("Not enough fields in data line (line number " + lineNumber + ")");
-                    }
-                    if (parts.length > samples.length + 9)
-                    {
-                        throw new VCFDataLineException("Too many fields in data line (line number " + lineNumber + ")");
-                    }
-                    
-                    String[] metaArray = Arrays.copyOfRange(parts, 0, 9);
-                    PositionMeta pm = new PositionMeta(metaArray);
-                                        
-                    RawGenotype[] data = new RawGenotype[parts.length - 9];
-                    for (int i = 0; i < data.length; i++)
-                    {
-                        data[i] = new RawGenotype(parts[i+9]);
-                    }
-                    
-                    Position p = new Position(pm,samples,data);
-                    
-                    boolean preallmatch = true;
-                    for (PositionFilter filter: preFilters)
+                    block.add(line);
+                    if (block.size() == BLOCK_SIZE)
                     {
-                        preallmatch = preallmatch && filter.test(p);
-                    }
-                    if (preallmatch)
-                    {
-                    
-                        for (PositionChanger c: positionChangers)
-                        {
-                            c.change(p);
-                        }
-
-                        for (Genotype g: p.genotypeList())
-                        {
-                            for (GenotypeChanger c: genotypeChangers)
-                            {
-                                c.change(g);
-                            }
-                        }
-
-
-                        boolean allmatch = true;
-                        for (PositionFilter filter: filters)
-                        {
-                            allmatch = allmatch && filter.test(p);
-                        }
-                        if (allmatch)
-                        {
-                            positionList.add(pm);
-                            genotypeList.add(data);
-                        }
+                        readBlock(block, lineNumber - block.size() + 1, threadSafe, preFilters,
+                                positionChangers, genotypeChangers, filters,
+                                positionList, genotypeList);
+                        block.clear();
                     }
                 }
             }
+            readBlock(block, lineNumber - block.size() + 1, threadSafe, preFilters,
+                    positionChangers, genotypeChangers, filters,
+                    positionList, genotypeList);
             
             positions = positionList.toArray(new PositionMeta[positionList.size()]);
             genotypes = genotypeList.toArray(new RawGenotype[genotypeList.size()][]);
@@ -268,6 +232,99 @@ public class VCF
         }
     }
     
+    private void readBlock(List<String> block, int firstLineNumber, boolean threadSafe,
+            List<PositionFilter> preFilters, List<PositionChanger> positionChangers,
+            List<GenotypeChanger> genotypeChangers, List<PositionFilter> filters,
+            List<PositionMeta> positionList, List<RawGenotype[]> genotypeList) throws VCFException
+    {
+        //If possible lines are parsed, changed and filtered in parallel but
+        //results are always collected in file order
+        Position[] read = new Position[block.size()];
+        Parallel.IndexTask<VCFException> task = i ->
+        {
+            read[i] = readLine(block.get(i), firstLineNumber + i, preFilters,
+                    positionChangers, genotypeChangers, filters);
+        };
+        if (threadSafe)
+        {
+            Parallel.forEach(block.size(), task);
+        }
+        else
+        {
+            for (int i = 0; i < block.size(); i++)
+            {
+                task.run(i);
+            }
+        }
+        
+        for (int i = 0; i < read.length; i++)
+        {
+            if (read[i] != null)
+            {
+                positionList.add(read[i].meta());
+                genotypeList.add(read[i].getRawGenotypes());
+            }
+        }
+    }
+    
+    private Position readLine(String line, int lineNumber,
+            List<PositionFilter> preFilters, List<PositionChanger> positionChangers,
+            List<GenotypeChanger> genotypeChangers, List<PositionFilter> filters) throws VCFException
+    {
+        String[] parts = line.split("\t");
+
+        if (parts.length < samples.length + 9)
+        {
+            throw new VCFDataLineException("Not enough fields in data line (line number " + lineNumber + ")");
+        }
+        if (parts.length > samples.length + 9)
+        {
+            throw new VCFDataLineException("Too many fields in data line (line number " + lineNumber + ")");
+        }
+
+        String[] metaArray = Arrays.copyOfRange(parts, 0, 9);
+        PositionMeta pm = new PositionMeta(metaArray);
+
+        RawGenotype[] data = new RawGenotype[parts.length - 9];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = new RawGenotype(parts[i+9]);
+        }
+
+        Position p = new Position(pm,samples,data);
+
+        for (PositionFilter filter: preFilters)
+        {
+            if (!filter.test(p))
+            {
+                return null;
+            }
+        }
+
+        for (PositionChanger c: positionChangers)
+        {
+            c.change(p);
+        }
+
+        for (Genotype g: p.genotypeList())
+        {
+            for (GenotypeChanger c: genotypeChangers)
+            {
+                c.change(g);
+            }
+        }
+
+        for (PositionFilter filter: filters)
+        {
+            if (!filter.test(p))
+            {
+                return null;
+            }
+        }
+        
+        return p;
+    }
+    
     /**
      * Create a  VCF object from data rather than a file
      * @param meta The meta data for the VCF
@@ -416,9 +473,21 @@ public class VCF
      */
     public void filterSamples(SampleFilter filter) throws VCFDataException
     {
-        for (int i = 0; i < samples.length; i++)
+        if (filter.isThreadSafe())
         {
-            sVis[i] = sVis[i] && filter.test(singleSample(i));
+            //Each index is only written by one task and the test only reads
+            //pVis so this is safe to do in parallel
+            Parallel.forEach(samples.length, i ->
+            {
+                sVis[i] = sVis[i] && filter.test(singleSample(i));
+            });
+        }
+        else
+        {
+            for (int i = 0; i < samples.length; i++)
+            {
+                sVis[i] = sVis[i] && filter.test(singleSample(i));
+            }
         }
     }
     
@@ -432,12 +501,105 @@ public class VCF
      */
     public void filterPositions(PositionFilter filter) throws VCFDataException
     {
+        if (filter.isThreadSafe())
+        {
+            //Each index is only written by one task and the test only reads
+            //sVis so this is safe to do in parallel
+            Parallel.forEach(positions.length, i ->
+            {
+                pVis[i] = pVis[i] && filter.test(singlePosition(i));
+            });
+        }
+        else
+        {
+            for (int i = 0; i < positions.length; i++)
+            {
+                pVis[i] = pVis[i] && filter.test(singlePosition(i));
+            }
+        }
+    }
+    
+    /**
+     * Filter the positions based on the given threshold filter.  The result is
+     * the same as for filterPositions but positions are sorted by the filter's
+     * statistic the first time a statistic is used (for a given set of visible
+     * samples) and the sort is reused by later filters with the same statistic,
+     * whatever their threshold.  This makes applying many cases that only
+     * differ in thresholds much quicker.
+     * @param filter The filter to be applied
+     * @throws VCF.Exceptions.VCFDataException If there is a problem with the
+     * data in the VCF
+     */
+    public void filterPositionsByThreshold(ThresholdPositionFilter filter) throws VCFDataException
+    {
+        //The statistic can depend on which samples are visible so they form
+        //part of the key
+        List<Object> key = Arrays.asList(filter.getStatisticKey(), visibleSamples());
+        //Removed and put back so the map is in order of last use
+        ThresholdSweep sweep = sweeps.remove(key);
+        if (sweep == null)
+        {
+            double[] stats = new double[positions.length];
+            if (filter.isThreadSafe())
+            {
+                Parallel.forEach(positions.length, i ->
+                {
+                    stats[i] = filter.statistic(singlePosition(i));
+                });
+            }
+            else
+            {
+                for (int i = 0; i < positions.length; i++)
+                {
+                    stats[i] = filter.statistic(singlePosition(i));
+                }
+            }
+            sweep = new ThresholdSweep(stats);
+        }
+        sweeps.put(key, sweep);
+        while (sweeps.size() > MAX_SWEEPS)
+        {
+            sweeps.remove(sweeps.keySet().iterator().next());
+        }
+        
+        boolean[] pass = new boolean[positions.length];
+        double threshold = filter.getThreshold();
+        if (filter.passAbove())
+        {
+            for (int k = sweep.firstAbove(threshold); k < sweep.order.length; k++)
+            {
+                pass[sweep.order[k]] = true;
+            }
+        }
+        else
+        {
+            int end = sweep.firstNotBelow(threshold);
+            for (int k = 0; k < end; k++)
+            {
+                pass[sweep.order[k]] = true;
+            }
+        }
+        
         for (int i = 0; i < positions.length; i++)
         {
-            pVis[i] = pVis[i] && filter.test(singlePosition(i));
+            pVis[i] = pVis[i] && pass[i];
         }
     }
     
+    //The visible samples in a compact form that can be used as a key
+    private BitSet visibleSamples()
+    {
+        BitSet visible = new BitSet(sVis.length);
+        for (int i = 0; i < sVis.length; i++)
+        {
+            if (sVis[i])
+            {
+                visible.set(i);
+            }
+        }
+        return visible;
+    }
+    
     /**
      * Limits the VCF to the given position.  Again positions are hidden, not
      * deleted.
@@ -837,6 +999,78 @@ public class VCF
     private boolean[] pVis;
     private boolean[] sVis;
     
+    //Sweeps are kept for the most recently used statistics and sets of
+    //visible samples only, as each holds two arrays the size of the number of
+    //positions
+    private final Map<List<Object>,ThresholdSweep> sweeps = new LinkedHashMap<>();
+    
+    private static final int MAX_SWEEPS = 8;
+    
+    private static final int BLOCK_SIZE = 1000;
+    
+    //Positions sorted by a statistic.  Positions with a NaN statistic never
+    //pass a threshold so are not included.
+    private static class ThresholdSweep
+    {
+        ThresholdSweep(double[] stats)
+        {
+            order = IntStream.range(0, stats.length)
+                    .filter(i -> !Double.isNaN(stats[i]))
+                    .boxed()
+                    .sorted((i1, i2) -> Double.compare(stats[i1], stats[i2]))
+                    .mapToInt(i -> i)
+                    .toArray();
+            sorted = new double[order.length];
+            for (int k = 0; k < order.length; k++)
+            {
+                sorted[k] = stats[order[k]];
+            }
+        }
+        
+        //Index of the first position with a statistic greater than t
+        int firstAbove(double t)
+        {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] > t)
+                {
+                    hi = mid;
+                }
+                else
+                {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+        
+        //Index of the first position with a statistic not less than t
+        int firstNotBelow(double t)
+        {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] < t)
+                {
+                    lo = mid + 1;
+                }
+                else
+                {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+        
+        final int[] order;
+        final double[] sorted;
+    }
+    
     /**
      * Utility function that returns the number of positions in a file
      * without reading in any data